@@ -6,7 +6,11 @@ import org.poo.banksystem.strategies.CashbackStrategy;
 import org.poo.banksystem.strategies.NrOfTransactionsStrategy;
 import org.poo.banksystem.strategies.SpendingThresholdStrategy;
 import org.poo.transactions.Transaction;
+import org.poo.transactions.TransactionLedger;
+import org.poo.transactions.TransactionType;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.LinkedHashMap;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -16,13 +20,30 @@ import java.util.Iterator;
 
 
 public class Account {
+    private static final VarHandle BALANCE;
+
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Account.class, "balanceBits",
+                    long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String iban;
-    private double balance;
+    // the bits of the balance, updated by compare-and-set so that concurrent
+    // payments and deposits are never lost
+    private long balanceBits;
     private final String currency;
+    private int currencyId = -1;
     private final String type;
     private List<Card> cards;
-    private Double minBalance = 0.0;
-    private List<Transaction> transactions;
+    // read without a lock by the payment checks, so volatile for the same
+    // reason as the balance
+    private volatile double minBalance = 0.0;
+    private final TransactionLedger transactions = new TransactionLedger();
+    private final CommerciantSpendings commerciantSpendings = new CommerciantSpendings();
     private String planType;
     private AccountPlan accountPlan;
     private double totalSpendingsForCashback = 0.0;
@@ -40,11 +61,10 @@ public class Account {
     public Account(final String iban, final double balance, final String currency,
                    final String type) {
         this.iban = iban;
-        this.balance = balance;
+        this.balanceBits = Double.doubleToRawLongBits(balance);
         this.currency = currency;
         this.type = type;
         this.cards = new ArrayList<>();
-        this.transactions = new ArrayList<>();
         discounts.put("Food", 0.0);
         discounts.put("Clothes", 0.0);
         discounts.put("Tech", 0.0);
@@ -65,7 +85,7 @@ public class Account {
      * @param balance the balance
      */
     public void setBalance(final double balance) {
-        this.balance = balance;
+        BALANCE.setVolatile(this, Double.doubleToRawLongBits(balance));
     }
 
     /**
@@ -74,7 +94,7 @@ public class Account {
      * @return the balance
      */
     public double getBalance() {
-        return balance;
+        return Double.longBitsToDouble((long) BALANCE.getVolatile(this));
     }
 
     /**
@@ -86,6 +106,24 @@ public class Account {
         return currency;
     }
 
+    /**
+     * Getter for the id of the currency, as interned by the exchange rate manager.
+     *
+     * @return the id of the currency
+     */
+    public int getCurrencyId() {
+        return currencyId;
+    }
+
+    /**
+     * Setter for the id of the currency.
+     *
+     * @param currencyId the id of the currency
+     */
+    public void setCurrencyId(final int currencyId) {
+        this.currencyId = currencyId;
+    }
+
     /**
      * Getter for the type.
      *
@@ -119,7 +157,12 @@ public class Account {
      * @param amount the amount to be added
      */
     public void addFunds(final double amount) {
-        this.balance += amount;
+        long current;
+        long updated;
+        do {
+            current = (long) BALANCE.getVolatile(this);
+            updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + amount);
+        } while (!BALANCE.compareAndSet(this, current, updated));
     }
 
     /**
@@ -128,7 +171,58 @@ public class Account {
      * @param amount the amount to be withdrawn
      */
     public void pay(final double amount) {
-        this.balance -= amount;
+        long current;
+        long updated;
+        do {
+            current = (long) BALANCE.getVolatile(this);
+            updated = Double.doubleToRawLongBits(Double.longBitsToDouble(current) - amount);
+        } while (!BALANCE.compareAndSet(this, current, updated));
+    }
+
+    /**
+     * Checks if the account can pay an amount: the balance covers it and what
+     * is left stays at or above the minimum balance.
+     *
+     * @param amount the amount to be paid
+     * @return true if the account can pay, false otherwise
+     */
+    public boolean canPay(final double amount) {
+        double floor = minBalance;
+        double current = getBalance();
+        return current >= amount && current - amount >= floor;
+    }
+
+    /**
+     * Withdraws an amount only if the balance covers it and what is left stays
+     * at or above the minimum balance, as one atomic step.
+     *
+     * @param amount the amount to be withdrawn
+     * @return true if the amount was withdrawn, false otherwise
+     */
+    public boolean tryPay(final double amount) {
+        return tryPay(amount, minBalance);
+    }
+
+    /**
+     * Withdraws an amount only if the balance covers it and what is left stays
+     * at or above a floor, as one atomic step.
+     *
+     * @param amount the amount to be withdrawn
+     * @param floor  the lowest balance the account may be left with
+     * @return true if the amount was withdrawn, false otherwise
+     */
+    public boolean tryPay(final double amount, final double floor) {
+        long current;
+        double updated;
+        do {
+            current = (long) BALANCE.getVolatile(this);
+            double balance = Double.longBitsToDouble(current);
+            if (!(balance >= amount && balance - amount >= floor)) {
+                return false;
+            }
+            updated = balance - amount;
+        } while (!BALANCE.compareAndSet(this, current, Double.doubleToRawLongBits(updated)));
+        return true;
     }
 
     /**
@@ -152,7 +246,7 @@ public class Account {
      *
      * @return the minimum balance
      */
-    public Double getMinBalance() {
+    public double getMinBalance() {
         return minBalance;
     }
 
@@ -170,17 +264,32 @@ public class Account {
      *
      * @return the transactions
      */
-    public List<Transaction> getTransactions() {
+    public TransactionLedger getTransactions() {
         return transactions;
     }
 
     /**
-     * Adds a transaction to the account.
+     * Getter for the card payments of the account, grouped by commerciant.
+     *
+     * @return the card payments
+     */
+    public CommerciantSpendings getCommerciantSpendings() {
+        return commerciantSpendings;
+    }
+
+    /**
+     * Adds a transaction to the account. Card payments are also recorded by
+     * commerciant, once for every time they are added, so the spendings report
+     * counts exactly the card payments listed in the transactions.
      *
      * @param transaction the transaction to be added
      */
     public void addTransaction(final Transaction transaction) {
         transactions.add(transaction);
+        if (transaction.getType() == TransactionType.CARD_PAYMENT) {
+            commerciantSpendings.record(transaction.getCommerciant(),
+                    transaction.getTimestamp(), transaction.getAmount());
+        }
     }
 
     /**
@@ -250,6 +359,16 @@ public class Account {
         return totalSpendingsForCashback;
     }
 
+    /**
+     * Setter for the total spendings made to commerciants with the
+     * spendingsThreshold cashback strategy, used when restoring a snapshot.
+     *
+     * @param totalSpendingsForCashback the total spendings
+     */
+    void setTotalSpendingsForCashback(final double totalSpendingsForCashback) {
+        this.totalSpendingsForCashback = totalSpendingsForCashback;
+    }
+
     /**
      * Processes a transaction depending on commerciant's cashback strategy.
      *
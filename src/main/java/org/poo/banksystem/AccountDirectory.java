@@ -0,0 +1,324 @@
+package org.poo.banksystem;
+
+import org.poo.utils.Utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bank-wide index of all the accounts, keyed by IBAN.
+ * <p>
+ * Each entry keeps the account, the user that created it and every user that
+ * has access to it (the owner and, for business accounts, the associates),
+ * so that commands can resolve an IBAN without scanning every user. The
+ * holders that come first and last in the input are kept as well, since the
+ * commands that used to scan the users credit one or the other of them.
+ * The directory also resolves the aliases set by the users. Every user has
+ * their own aliases, and when several users set the same alias, it stands for
+ * the IBAN given by the user that comes first in the input.
+ * </p>
+ */
+public class AccountDirectory {
+    private final UserDirectory userDirectory;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, TreeMap<Integer, String>> aliases = new HashMap<>();
+
+    /**
+     * An indexed account together with its owner and its holders.
+     */
+    public static final class Entry {
+        private final Account account;
+        private final User owner;
+        private final Map<String, User> holders = new HashMap<>();
+        private User firstHolder;
+        private User lastHolder;
+
+        private Entry(final Account account, final User owner) {
+            this.account = account;
+            this.owner = owner;
+        }
+
+        /**
+         * Getter for the account.
+         *
+         * @return the account
+         */
+        public Account getAccount() {
+            return account;
+        }
+
+        /**
+         * Getter for the owner of the account.
+         *
+         * @return the owner
+         */
+        public User getOwner() {
+            return owner;
+        }
+
+        /**
+         * Getter for the holder of the account that comes first in the input,
+         * the one found by going through the users in order.
+         *
+         * @return the first holder
+         */
+        public User getFirstHolder() {
+            return firstHolder;
+        }
+
+        /**
+         * Getter for the holder of the account that comes last in the input,
+         * the one left by going through every user in order.
+         *
+         * @return the last holder
+         */
+        public User getLastHolder() {
+            return lastHolder;
+        }
+
+        /**
+         * Getter for the number of users that can access the account.
+         *
+         * @return the number of holders, the owner included
+         */
+        public int getHolderCount() {
+            return holders.size();
+        }
+
+        /**
+         * Checks if the user has access to the account.
+         *
+         * @param user the user
+         * @return true if the user is the owner or an associate, false otherwise
+         */
+        public boolean isHeldBy(final User user) {
+            return user != null && holders.get(user.getEmail()) == user;
+        }
+
+        /**
+         * Finds the holder of the account with the given email.
+         *
+         * @param email the email of the user
+         * @return the holder, or null if no user with that email can access the account
+         */
+        public User findHolder(final String email) {
+            return holders.get(email);
+        }
+
+        /**
+         * Gets every user that can access the account, the owner included.
+         *
+         * @return the holders
+         */
+        Collection<User> holders() {
+            return holders.values();
+        }
+    }
+
+    /**
+     * Constructor for AccountDirectory.
+     *
+     * @param userDirectory the user directory, giving the order of the users
+     */
+    public AccountDirectory(final UserDirectory userDirectory) {
+        this.userDirectory = userDirectory;
+    }
+
+    /**
+     * Registers a newly created account.
+     *
+     * @param account the account
+     * @param owner   the user that created the account
+     */
+    public void register(final Account account, final User owner) {
+        Entry entry = new Entry(account, owner);
+        entries.put(account.getIBAN(), entry);
+        addHolder(entry, owner);
+    }
+
+    /**
+     * Grants a user access to an already registered account.
+     *
+     * @param iban the IBAN of the account
+     * @param user the user (business associate)
+     */
+    public void addHolder(final String iban, final User user) {
+        Entry entry = entries.get(iban);
+        if (entry != null) {
+            addHolder(entry, user);
+        }
+    }
+
+    private void addHolder(final Entry entry, final User user) {
+        if (entry.holders.putIfAbsent(user.getEmail(), user) != null) {
+            return;
+        }
+        int position = userDirectory.positionOf(user);
+        if (entry.firstHolder == null
+                || position < userDirectory.positionOf(entry.firstHolder)) {
+            entry.firstHolder = user;
+        }
+        if (entry.lastHolder == null
+                || position > userDirectory.positionOf(entry.lastHolder)) {
+            entry.lastHolder = user;
+        }
+    }
+
+    /**
+     * Removes an account from the directory.
+     *
+     * @param iban the IBAN of the account
+     */
+    public void unregister(final String iban) {
+        entries.remove(iban);
+    }
+
+    /**
+     * Looks up an account by IBAN.
+     *
+     * @param iban the IBAN
+     * @return the entry, or null if there is no such account
+     */
+    public Entry lookup(final String iban) {
+        if (iban == null) {
+            return null;
+        }
+        return entries.get(iban);
+    }
+
+    /**
+     * Finds an account by IBAN.
+     *
+     * @param iban the IBAN
+     * @return the account, or null if there is no such account
+     */
+    public Account findAccount(final String iban) {
+        Entry entry = lookup(iban);
+        return entry == null ? null : entry.getAccount();
+    }
+
+    /**
+     * Finds the holder of an account that comes first in the input by IBAN.
+     *
+     * @param iban the IBAN
+     * @return the first holder, or null if there is no such account
+     */
+    public User findFirstHolder(final String iban) {
+        Entry entry = lookup(iban);
+        return entry == null ? null : entry.getFirstHolder();
+    }
+
+    /**
+     * Finds an account by IBAN, only if the given user has access to it.
+     *
+     * @param iban the IBAN
+     * @param user the user
+     * @return the account, or null if there is no such account or the user can't access it
+     */
+    public Account findAccountHeldBy(final String iban, final User user) {
+        Entry entry = lookup(iban);
+        if (entry == null || !entry.isHeldBy(user)) {
+            return null;
+        }
+        return entry.getAccount();
+    }
+
+    /**
+     * Sets an alias for an IBAN, on behalf of a user.
+     *
+     * @param user  the user that set the alias
+     * @param alias the alias
+     * @param iban  the IBAN the alias points to
+     */
+    public void setAlias(final User user, final String alias, final String iban) {
+        aliases.computeIfAbsent(alias, name -> new TreeMap<>())
+                .put(userDirectory.positionOf(user), iban);
+    }
+
+    /**
+     * Resolves a receiver given either as an IBAN or as an alias.
+     * <p>
+     * Values shaped like a generated IBAN are returned as they are, without
+     * looking at the aliases.
+     * </p>
+     *
+     * @param receiver the IBAN or the alias
+     * @return the IBAN the alias points to, or the receiver itself
+     */
+    public String resolveAlias(final String receiver) {
+        Map.Entry<Integer, String> alias = findAlias(receiver);
+        return alias == null ? receiver : alias.getValue();
+    }
+
+    /**
+     * Looks up the account of a receiver given either as an IBAN or as an alias.
+     * <p>
+     * The users used to be scanned in order, with the alias resolved at the
+     * user that set it and only the accounts of that user and of the ones after
+     * it compared with the IBAN it stands for, so an account held only by
+     * users before the one that set the alias is not found.
+     * </p>
+     *
+     * @param receiver the IBAN or the alias
+     * @return the entry, or null if there is no such account
+     */
+    public Entry lookupReceiver(final String receiver) {
+        Map.Entry<Integer, String> alias = findAlias(receiver);
+        if (alias == null) {
+            return lookup(receiver);
+        }
+        Entry entry = lookup(alias.getValue());
+        if (entry != null && userDirectory.positionOf(entry.getLastHolder()) < alias.getKey()) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Finds the alias a receiver stands for, as set by the first user in the
+     * input that set it.
+     *
+     * @param receiver the IBAN or the alias
+     * @return the position of the user that set the alias and the IBAN it
+     *         points to, or null if the receiver is not an alias
+     */
+    private Map.Entry<Integer, String> findAlias(final String receiver) {
+        if (receiver == null || Utils.isIBAN(receiver)) {
+            return null;
+        }
+        TreeMap<Integer, String> byUser = aliases.get(receiver);
+        return byUser == null ? null : byUser.firstEntry();
+    }
+
+    /**
+     * Checks if a user has access to a registered account.
+     *
+     * @param account the account
+     * @param user    the user
+     * @return true if the account is registered and the user is one of its holders
+     */
+    public boolean isHeldBy(final Account account, final User user) {
+        Entry entry = lookup(account.getIBAN());
+        return entry != null && entry.isHeldBy(user);
+    }
+
+    /**
+     * Getter for the number of registered accounts.
+     *
+     * @return the number of accounts
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets every registered account.
+     *
+     * @return the entries of the accounts
+     */
+    Collection<Entry> entries() {
+        return entries.values();
+    }
+}
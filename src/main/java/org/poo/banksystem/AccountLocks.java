@@ -0,0 +1,130 @@
+package org.poo.banksystem;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks guarding the accounts of the bank while money moves between
+ * them.
+ * <p>
+ * Every IBAN is mapped by its hash to one of a fixed number of locks, so the
+ * locks take constant memory however many accounts there are, and operations
+ * on accounts that fall on different stripes never block each other. An
+ * operation on several accounts takes all their stripes at once, always in
+ * ascending stripe order, so two operations crossing the same accounts in
+ * opposite directions cannot deadlock.
+ * </p>
+ */
+public final class AccountLocks {
+    private static final int DEFAULT_STRIPES = 256;
+    private static final int HASH_SPREAD = 16;
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * Constructor for AccountLocks, with the default number of stripes.
+     */
+    public AccountLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor for AccountLocks.
+     *
+     * @param stripes the number of stripes, rounded up to a power of two
+     */
+    public AccountLocks(final int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("The number of stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Locks the accounts with the given IBANs.
+     *
+     * @param ibans the IBANs; null ones are ignored
+     * @return the held locks, to be released by closing them
+     */
+    public Held lock(final String... ibans) {
+        return lock(Arrays.asList(ibans));
+    }
+
+    /**
+     * Locks the accounts with the given IBANs, taking their stripes in
+     * ascending order.
+     *
+     * @param ibans the IBANs; null ones are ignored
+     * @return the held locks, to be released by closing them
+     */
+    public Held lock(final Collection<String> ibans) {
+        int[] indices = new int[ibans.size()];
+        int count = 0;
+        for (String iban : ibans) {
+            if (iban != null) {
+                indices[count++] = stripeOf(iban);
+            }
+        }
+        Arrays.sort(indices, 0, count);
+        ReentrantLock[] held = new ReentrantLock[count];
+        int locked = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && indices[i] == indices[i - 1]) {
+                continue;
+            }
+            ReentrantLock stripe = stripes[indices[i]];
+            stripe.lock();
+            held[locked++] = stripe;
+        }
+        return new Held(held, locked);
+    }
+
+    /**
+     * Locks the given accounts.
+     *
+     * @param accounts the accounts
+     * @return the held locks, to be released by closing them
+     */
+    public Held lockAccounts(final List<? extends Account> accounts) {
+        return lock(accounts.stream().map(Account::getIBAN).toList());
+    }
+
+    private int stripeOf(final String iban) {
+        int hash = iban.hashCode();
+        return (hash ^ (hash >>> HASH_SPREAD)) & mask;
+    }
+
+    /**
+     * The stripes held by one operation, released in the reverse order they
+     * were taken in.
+     */
+    public static final class Held implements AutoCloseable {
+        private final ReentrantLock[] locks;
+        private final int count;
+
+        private Held(final ReentrantLock[] locks, final int count) {
+            this.locks = locks;
+            this.count = count;
+        }
+
+        /**
+         * Releases the stripes.
+         */
+        @Override
+        public void close() {
+            for (int i = count - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+}
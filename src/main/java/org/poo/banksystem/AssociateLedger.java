@@ -0,0 +1,158 @@
+package org.poo.banksystem;
+
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Running totals of a business account, one per associate.
+ * <p>
+ * Every associate has a time-ordered series of their running total, in the
+ * order the associates first appeared in the ledger, so the total of an
+ * associate over any time window is found by binary search and the totals are
+ * never boxed when updated or summed.
+ * </p>
+ */
+public final class AssociateLedger {
+    private static final int DEFAULT_CAPACITY = 4;
+    private final Map<User, Integer> slots = new HashMap<>();
+    private CumulativeSeries[] series = new CumulativeSeries[DEFAULT_CAPACITY];
+
+    /**
+     * Gets the total of an associate.
+     *
+     * @param user the associate
+     * @return the total, or 0 if the associate is not in the ledger
+     */
+    public double get(final User user) {
+        Integer slot = slots.get(user);
+        return slot == null ? 0.0 : series[slot].total();
+    }
+
+    /**
+     * Gets the total of an associate over a time window.
+     *
+     * @param user           the associate
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the total, or 0 if the associate is not in the ledger
+     */
+    public double get(final User user, final int startTimestamp, final int endTimestamp) {
+        Integer slot = slots.get(user);
+        return slot == null ? 0.0 : series[slot].between(startTimestamp, endTimestamp);
+    }
+
+    /**
+     * Adds an amount to the total of an associate.
+     *
+     * @param user      the associate
+     * @param timestamp the timestamp of the change
+     * @param amount    the amount to be added
+     */
+    public void add(final User user, final int timestamp, final double amount) {
+        int slot = slotOf(user);
+        series[slot].add(timestamp, amount);
+    }
+
+    /**
+     * Replaces the total of an associate.
+     *
+     * @param user      the associate
+     * @param timestamp the timestamp of the change
+     * @param amount    the new total
+     */
+    public void set(final User user, final int timestamp, final double amount) {
+        int slot = slotOf(user);
+        series[slot].set(timestamp, amount);
+    }
+
+    /**
+     * Sums the totals of all the associates, in the order they first appeared,
+     * which is the order the insertion-ordered maps these totals used to be kept
+     * in were summed in.
+     *
+     * @return the sum
+     */
+    public double total() {
+        double[] totals = new double[slots.size()];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = series[i].total();
+        }
+        return Arrays.stream(totals).sum();
+    }
+
+    /**
+     * Sums the totals of all the associates over a time window.
+     *
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the sum
+     */
+    public double total(final int startTimestamp, final int endTimestamp) {
+        double[] totals = new double[slots.size()];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = series[i].between(startTimestamp, endTimestamp);
+        }
+        return Arrays.stream(totals).sum();
+    }
+
+    /**
+     * Getter for the number of associates in the ledger.
+     *
+     * @return the number of associates
+     */
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Writes the totals to a snapshot.
+     *
+     * @param output  the snapshot being written
+     * @param userIds gives the position of an associate in the snapshot
+     */
+    void writeTo(final SnapshotOutput output, final ToIntFunction<User> userIds) {
+        User[] associates = new User[slots.size()];
+        for (Map.Entry<User, Integer> entry : slots.entrySet()) {
+            associates[entry.getValue()] = entry.getKey();
+        }
+        output.writeInt(associates.length);
+        for (int slot = 0; slot < associates.length; slot++) {
+            output.writeInt(userIds.applyAsInt(associates[slot]));
+            series[slot].writeTo(output);
+        }
+    }
+
+    /**
+     * Restores the totals read from a snapshot written by {@link #writeTo}.
+     *
+     * @param input the snapshot being read
+     * @param users gives the associate at a position in the snapshot
+     */
+    void readFrom(final SnapshotInput input, final IntFunction<User> users) {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            int slot = slotOf(users.apply(input.readInt()));
+            series[slot].readFrom(input);
+        }
+    }
+
+    private int slotOf(final User user) {
+        Integer slot = slots.get(user);
+        if (slot != null) {
+            return slot;
+        }
+        int newSlot = slots.size();
+        if (newSlot == series.length) {
+            series = Arrays.copyOf(series, newSlot * 2);
+        }
+        series[newSlot] = new CumulativeSeries();
+        slots.put(user, newSlot);
+        return newSlot;
+    }
+}
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.commands.AddAccount;
+import org.poo.commands.Command;
+import org.poo.commands.CommandType;
 import org.poo.commands.AddFunds;
 import org.poo.commands.CreateCard;
 import org.poo.commands.CreateOneTimeCard;
@@ -15,6 +17,7 @@ import org.poo.commands.SendMoney;
 import org.poo.commands.SetMinBalance;
 import org.poo.commands.CheckCardStatus;
 import org.poo.commands.SplitPayment;
+import org.poo.commands.SplitPaymentData;
 import org.poo.commands.PrintTransactions;
 import org.poo.commands.SetAlias;
 import org.poo.commands.Report;
@@ -30,13 +33,30 @@ import org.poo.commands.AddNewBusinessAssociate;
 import org.poo.commands.ChangeDepositLimit;
 import org.poo.commands.ChangeSpendingLimit;
 import org.poo.commands.BusinessReport;
+import org.poo.fileio.ArrayNodeOutput;
 import org.poo.fileio.CommerciantInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.TransactionManager;
 import org.poo.fileio.CommandInput;
 import org.poo.fileio.ObjectInput;
 import org.poo.fileio.UserInput;
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.WriteAheadLog;
+import org.poo.utils.IdGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class Bank {
     private ObjectMapper objectMapper;
@@ -44,34 +64,16 @@ public class Bank {
     private List<Commerciant> commerciants = new ArrayList<>();
     private CommandInput[] commands;
     private final ExchangeRateManager exchangeRateManager;
-    private PrintUsers printUsers;
-    private AddAccount addAccount;
-    private CreateCard createCard;
-    private AddFunds addFunds;
-    private DeleteAccount deleteAccount;
-    private CreateOneTimeCard createOneTimeCard;
-    private DeleteCard deleteCard;
-    private PayOnline payOnline;
-    private SendMoney sendMoney;
-    private PrintTransactions printTransactions;
-    private TransactionManager transactionManager;
-    private SetMinBalance setMinBalance;
-    private CheckCardStatus checkCardStatus;
-    private SetAlias setAlias;
-    private SplitPayment splitPayment;
-    private Report report;
-    private SpendingsReport spendingsReport;
-    private AddInterest addInterest;
-    private ChangeInterestRate changeInterestRate;
-    private WithdrawSavings withdrawSavings;
-    private UpgradePlan upgradePlan;
-    private CashWithdrawal cashWithdrawal;
-    private AcceptSplitPayment acceptSplitPayment;
-    private RejectSplitPayment rejectSplitPayment;
-    private AddNewBusinessAssociate addNewBusinessAssociate;
-    private ChangeDepositLimit changeDepositLimit;
-    private ChangeSpendingLimit changeSpendingLimit;
-    private BusinessReport businessReport;
+    private final UserDirectory userDirectory = new UserDirectory();
+    private final AccountDirectory accountDirectory = new AccountDirectory(userDirectory);
+    private final CardRegistry cardRegistry = new CardRegistry();
+    private final AccountLocks accountLocks = new AccountLocks();
+    private final Map<Integer, SplitPaymentData> splitPayments = new HashMap<>();
+    private final IdGenerator idGenerator;
+    private final TransactionManager transactionManager;
+    private final Map<CommandType, Command> handlers = new EnumMap<>(CommandType.class);
+    private WriteAheadLog writeAheadLog;
+    private CommandScheduler scheduler;
 
     /**
      * Constructor for the Bank class.
@@ -80,8 +82,24 @@ public class Bank {
      * @param inputData the object input
      */
     public Bank(final ObjectMapper objectMapper, final ObjectInput inputData) {
+        this(objectMapper, inputData, new IdGenerator());
+    }
+
+    /**
+     * Constructor for the Bank class, with the generator of its IBANs and card
+     * numbers.
+     *
+     * @param objectMapper the object mapper
+     * @param inputData the object input
+     * @param idGenerator the generator of IBANs and card numbers
+     */
+    public Bank(final ObjectMapper objectMapper, final ObjectInput inputData,
+                final IdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
         for (UserInput userInput : inputData.getUsers()) {
-            users.add(new User(userInput));
+            User user = new User(userInput);
+            users.add(user);
+            userDirectory.register(user);
         }
         for (CommerciantInput commerciantInput : inputData.getCommerciants()) {
             commerciants.add(new Commerciant(commerciantInput));
@@ -89,41 +107,65 @@ public class Bank {
         commands = inputData.getCommands();
         this.objectMapper = objectMapper;
         this.exchangeRateManager = new ExchangeRateManager(inputData.getExchangeRates());
-        this.transactionManager = new TransactionManager(users);
+        this.transactionManager = new TransactionManager(userDirectory, accountDirectory);
         initializeCommands();
     }
 
     /**
      * This method is used to initialize the commands.
+     * <p>
+     * Each command type is mapped to the object that handles it, so adding a
+     * new command only needs a new entry here.
+     * </p>
      */
     private void initializeCommands() {
-        printUsers = new PrintUsers(users);
-        addAccount = new AddAccount(users, exchangeRateManager, transactionManager);
-        createCard = new CreateCard(users, transactionManager);
-        addFunds = new AddFunds(users);
-        deleteAccount = new DeleteAccount(users, transactionManager);
-        createOneTimeCard = new CreateOneTimeCard(users, transactionManager);
-        deleteCard = new DeleteCard(users, transactionManager);
-        payOnline = new PayOnline(users, commerciants, exchangeRateManager, transactionManager);
-        sendMoney = new SendMoney(users, commerciants, exchangeRateManager, transactionManager);
-        printTransactions = new PrintTransactions(users);
-        setMinBalance = new SetMinBalance(users);
-        checkCardStatus = new CheckCardStatus(users, transactionManager);
-        setAlias = new SetAlias(users);
-        splitPayment = new SplitPayment(users, exchangeRateManager);
-        report = new Report(users);
-        spendingsReport = new SpendingsReport(users);
-        addInterest = new AddInterest(users, transactionManager);
-        changeInterestRate = new ChangeInterestRate(users, transactionManager);
-        withdrawSavings = new WithdrawSavings(users, exchangeRateManager, transactionManager);
-        upgradePlan = new UpgradePlan(users, exchangeRateManager, transactionManager);
-        cashWithdrawal = new CashWithdrawal(users, exchangeRateManager, transactionManager);
-        acceptSplitPayment = new AcceptSplitPayment(users, exchangeRateManager, transactionManager);
-        rejectSplitPayment = new RejectSplitPayment(users, transactionManager);
-        addNewBusinessAssociate = new AddNewBusinessAssociate(users);
-        changeDepositLimit = new ChangeDepositLimit(users);
-        changeSpendingLimit = new ChangeSpendingLimit(users);
-        businessReport = new BusinessReport(users);
+        handlers.put(CommandType.PRINT_USERS, new PrintUsers(users));
+        handlers.put(CommandType.ADD_ACCOUNT, new AddAccount(userDirectory, accountDirectory,
+                exchangeRateManager, transactionManager, idGenerator));
+        handlers.put(CommandType.CREATE_CARD, new CreateCard(userDirectory, accountDirectory,
+                cardRegistry, transactionManager, idGenerator));
+        handlers.put(CommandType.CREATE_ONE_TIME_CARD, new CreateOneTimeCard(userDirectory,
+                accountDirectory, cardRegistry, transactionManager, idGenerator));
+        handlers.put(CommandType.ADD_FUNDS, new AddFunds(userDirectory, accountDirectory));
+        handlers.put(CommandType.DELETE_ACCOUNT, new DeleteAccount(userDirectory,
+                accountDirectory, cardRegistry, transactionManager));
+        handlers.put(CommandType.DELETE_CARD, new DeleteCard(userDirectory, accountDirectory,
+                cardRegistry, transactionManager));
+        handlers.put(CommandType.PAY_ONLINE, new PayOnline(userDirectory, accountDirectory,
+                cardRegistry, commerciants, exchangeRateManager, transactionManager,
+                idGenerator));
+        handlers.put(CommandType.SEND_MONEY, new SendMoney(accountDirectory, commerciants,
+                exchangeRateManager, transactionManager, accountLocks));
+        handlers.put(CommandType.PRINT_TRANSACTIONS, new PrintTransactions(userDirectory));
+        handlers.put(CommandType.SET_MINIMUM_BALANCE, new SetMinBalance(accountDirectory));
+        handlers.put(CommandType.CHECK_CARD_STATUS, new CheckCardStatus(cardRegistry,
+                transactionManager));
+        handlers.put(CommandType.SET_ALIAS, new SetAlias(userDirectory, accountDirectory));
+        handlers.put(CommandType.SPLIT_PAYMENT, new SplitPayment(accountDirectory,
+                exchangeRateManager, splitPayments));
+        handlers.put(CommandType.REPORT, new Report(accountDirectory));
+        handlers.put(CommandType.SPENDINGS_REPORT, new SpendingsReport(accountDirectory));
+        handlers.put(CommandType.ADD_INTEREST, new AddInterest(accountDirectory,
+                transactionManager));
+        handlers.put(CommandType.CHANGE_INTEREST_RATE, new ChangeInterestRate(accountDirectory,
+                transactionManager));
+        handlers.put(CommandType.WITHDRAW_SAVINGS, new WithdrawSavings(accountDirectory,
+                exchangeRateManager, transactionManager));
+        handlers.put(CommandType.UPGRADE_PLAN, new UpgradePlan(accountDirectory,
+                exchangeRateManager, transactionManager));
+        handlers.put(CommandType.CASH_WITHDRAWAL, new CashWithdrawal(userDirectory,
+                accountDirectory, cardRegistry, exchangeRateManager, transactionManager));
+        handlers.put(CommandType.ACCEPT_SPLIT_PAYMENT, new AcceptSplitPayment(userDirectory,
+                accountDirectory, exchangeRateManager, transactionManager, accountLocks,
+                splitPayments));
+        handlers.put(CommandType.REJECT_SPLIT_PAYMENT, new RejectSplitPayment(userDirectory,
+                accountDirectory, transactionManager, splitPayments));
+        handlers.put(CommandType.ADD_NEW_BUSINESS_ASSOCIATE,
+                new AddNewBusinessAssociate(userDirectory, accountDirectory));
+        handlers.put(CommandType.CHANGE_DEPOSIT_LIMIT, new ChangeDepositLimit(accountDirectory));
+        handlers.put(CommandType.CHANGE_SPENDING_LIMIT,
+                new ChangeSpendingLimit(accountDirectory));
+        handlers.put(CommandType.BUSINESS_REPORT, new BusinessReport(accountDirectory));
     }
 
     /**
@@ -132,101 +174,265 @@ public class Bank {
      * This method utilizes the Command design pattern to handle various operations
      * such as printing users, adding accounts, creating cards, and adding funds.
      * Each operation is encapsulated in a command object that implements the
-     * {@link org.poo.commands.Command} interface.
+     * {@link org.poo.commands.Command} interface. The command type is resolved
+     * when the input is read, so dispatching is a single enum map lookup.
      * </p>
      *
-     * @param output the output array
+     * @param output the output sink
      */
-    public void executeCommands(final ArrayNode output) {
+    public void executeCommands(final OutputSink output) {
         for (CommandInput command : commands) {
-            switch (command.getCommand()) {
-                case "printUsers":
-                    printUsers.execute(command, objectMapper, output);
-                    break;
-                case "addAccount":
-                    addAccount.execute(command, objectMapper, output);
-                    break;
-                case "createCard":
-                    createCard.execute(command, objectMapper, output);
-                    break;
-                case "createOneTimeCard":
-                    createOneTimeCard.execute(command, objectMapper, output);
-                    break;
-                case "addFunds":
-                    addFunds.execute(command, objectMapper, output);
-                    break;
-                case "deleteAccount":
-                    deleteAccount.execute(command, objectMapper, output);
-                    break;
-                case "deleteCard":
-                    deleteCard.execute(command, objectMapper, output);
-                    break;
-                case "payOnline":
-                    payOnline.execute(command, objectMapper, output);
-                    break;
-                case "sendMoney":
-                    sendMoney.execute(command, objectMapper, output);
-                    break;
-                case "printTransactions":
-                    printTransactions.execute(command, objectMapper, output);
-                    break;
-                case "setMinimumBalance":
-                    setMinBalance.execute(command, objectMapper, output);
-                    break;
-                case "checkCardStatus":
-                    checkCardStatus.execute(command, objectMapper, output);
-                    break;
-                case "setAlias":
-                    setAlias.execute(command, objectMapper, output);
-                    break;
-                case "splitPayment":
-                    splitPayment.execute(command, objectMapper, output);
-                    break;
-                case "report":
-                    report.execute(command, objectMapper, output);
-                    break;
-                case "spendingsReport":
-                    spendingsReport.execute(command, objectMapper, output);
-                    break;
-                case "addInterest":
-                    addInterest.execute(command, objectMapper, output);
-                    break;
-                case "changeInterestRate":
-                    changeInterestRate.execute(command, objectMapper, output);
-                    break;
-                case "withdrawSavings":
-                    withdrawSavings.execute(command, objectMapper, output);
-                    break;
-                case "upgradePlan":
-                    upgradePlan.execute(command, objectMapper, output);
-                    break;
-                case "cashWithdrawal":
-                    cashWithdrawal.execute(command, objectMapper, output);
-                    break;
-                case "acceptSplitPayment":
-                    acceptSplitPayment.execute(command, objectMapper, output);
-                    break;
-                case "rejectSplitPayment":
-                    rejectSplitPayment.execute(command, objectMapper, output);
-                    break;
-                case "addNewBusinessAssociate":
-                    addNewBusinessAssociate.execute(command, objectMapper, output);
-                    break;
-                case "changeDepositLimit":
-                    changeDepositLimit.execute(command, objectMapper, output);
-                    break;
-                case "changeSpendingLimit":
-                    changeSpendingLimit.execute(command, objectMapper, output);
-                    break;
-                case "businessReport":
-                    businessReport.execute(command, objectMapper, output);
-                    break;
-                default:
-                    ObjectNode outputNode = objectMapper.createObjectNode();
-                    outputNode.put("error", "Invalid command");
-                    output.add(outputNode);
-                    break;
+            executeCommand(command, output);
+        }
+    }
+
+    /**
+     * This method is used to execute a single command, for inputs whose commands
+     * are read one at a time.
+     *
+     * @param command the command to be executed
+     * @param output the output sink
+     */
+    public void executeCommand(final CommandInput command, final OutputSink output) {
+        log(command);
+        dispatch(command, output);
+    }
+
+    /**
+     * This method is used to execute the commands on several threads, running
+     * at the same time the commands that touch different users and accounts.
+     * The outputs are the same as when executing them one after the other.
+     *
+     * @param output the output sink
+     * @param threads the number of threads
+     */
+    public void executeCommands(final OutputSink output, final int threads) {
+        try (CommandScheduler scheduler = startParallelExecution(threads, output)) {
+            for (CommandInput command : commands) {
+                scheduler.submit(command);
             }
         }
     }
+
+    /**
+     * This method is used to start executing commands on several threads, for
+     * inputs whose commands are read one at a time. The commands are submitted
+     * to the returned scheduler, which must be closed once all of them were.
+     *
+     * @param threads the number of threads
+     * @param output the output sink
+     * @return the scheduler
+     * @throws IllegalStateException if the bank already has an open scheduler
+     */
+    public CommandScheduler startParallelExecution(final int threads, final OutputSink output) {
+        if (scheduler != null && scheduler.isOpen()) {
+            throw new IllegalStateException("The commands are already executed in parallel");
+        }
+        scheduler = new CommandScheduler(userDirectory, accountDirectory, cardRegistry,
+                exchangeRateManager, this::log, this::dispatch, threads, output);
+        return scheduler;
+    }
+
+    /**
+     * This method is used to append a command to the log, if the bank has one
+     * and the command can change the state of the bank.
+     *
+     * @param command the command
+     */
+    private void log(final CommandInput command) {
+        CommandType type = command.getCommandType();
+        if (writeAheadLog != null && type != null && type.isMutating()) {
+            try {
+                writeAheadLog.append(command);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Setter for the log the state-changing commands are appended to before
+     * they are executed.
+     *
+     * @param writeAheadLog the log, or null to stop logging
+     */
+    public void setWriteAheadLog(final WriteAheadLog writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    /**
+     * This method is used to rebuild the state of the bank from a log, by
+     * executing again the commands in it and discarding their outputs.
+     * <p>
+     * The log only holds commands, so the bank must have been created from the
+     * same users, exchange rates and commerciants as the one that wrote it, with
+     * a new generator of IBANs and card numbers.
+     * </p>
+     *
+     * @param logPath the file of the log
+     * @throws IOException if the log cannot be read
+     */
+    public void recover(final Path logPath) throws IOException {
+        WriteAheadLog.replay(logPath, objectMapper, command -> dispatch(command, node -> { }));
+    }
+
+    /**
+     * This method is used to rebuild the state of the bank from the part of a
+     * log written after a snapshot was taken.
+     *
+     * @param logPath    the file of the log
+     * @param fromOffset the length of the log when the snapshot was taken, as
+     *                   returned by {@link #loadSnapshot}
+     * @throws IOException if the log cannot be read
+     */
+    public void recover(final Path logPath, final long fromOffset) throws IOException {
+        WriteAheadLog.replay(logPath, objectMapper, fromOffset,
+                command -> dispatch(command, node -> { }));
+    }
+
+    /**
+     * This method is used to save the state of the bank to a binary snapshot.
+     * <p>
+     * The state is streamed to a file under a temporary name, which is synced
+     * to the disk and moved over the previous snapshot, so an interrupted write
+     * never replaces a complete snapshot, and the snapshot never has to fit in
+     * memory. If the bank has a log, it is synced and its length is kept in the
+     * snapshot, so only the commands logged after it need to be replayed when
+     * recovering.
+     * </p>
+     * <p>
+     * While the commands are executed in parallel, this method must be called
+     * from the thread submitting them. The snapshot is then taken at a barrier
+     * of the scheduler: it is written by one of the workers once the commands
+     * submitted before the call are done, and the commands submitted after it
+     * wait for it, so this method returns at once. Otherwise, the state is
+     * written on the calling thread before this method returns, so commands can
+     * be executed as soon as it does, and only the sync and the move are left
+     * to a background thread.
+     * </p>
+     *
+     * @param path the file of the snapshot
+     * @return completes once the snapshot is on disk
+     * @throws IOException if the log cannot be synced or the snapshot cannot be
+     *                     written
+     */
+    public CompletableFuture<Void> writeSnapshot(final Path path) throws IOException {
+        long logPosition = 0;
+        if (writeAheadLog != null) {
+            writeAheadLog.sync();
+            logPosition = writeAheadLog.length();
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        if (scheduler != null && scheduler.isOpen()) {
+            long position = logPosition;
+            return scheduler.runAtBarrier(() -> {
+                try {
+                    FileChannel channel = encodeSnapshot(position, temporary);
+                    replaceSnapshot(channel, temporary, path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        FileChannel channel = encodeSnapshot(logPosition, temporary);
+        return CompletableFuture.runAsync(() -> {
+            try {
+                replaceSnapshot(channel, temporary, path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * This method is used to stream the state of the bank to a new file, which
+     * is deleted if the state cannot be written.
+     *
+     * @param logPosition the length of the log
+     * @param temporary the file
+     * @return the open channel of the file
+     * @throws IOException if the file cannot be written
+     */
+    private FileChannel encodeSnapshot(final long logPosition, final Path temporary)
+            throws IOException {
+        FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            new BankSnapshot(users, commerciants, accountDirectory, cardRegistry,
+                    exchangeRateManager, idGenerator, splitPayments)
+                    .encode(logPosition, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * This method is used to sync a written snapshot to the disk and move it
+     * over the previous one.
+     *
+     * @param channel the open channel of the written snapshot
+     * @param temporary the file of the written snapshot
+     * @param path the file of the snapshot
+     * @throws IOException if the snapshot cannot be synced or moved
+     */
+    private static void replaceSnapshot(final FileChannel channel, final Path temporary,
+                                        final Path path) throws IOException {
+        try (channel) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * This method is used to restore the state of the bank from a binary
+     * snapshot, mapped into memory instead of read through a stream.
+     * <p>
+     * The snapshot only holds what the commands changed, so the bank must have
+     * been created from the same input as the one that wrote it and must not
+     * have executed any command yet.
+     * </p>
+     *
+     * @param path the file of the snapshot
+     * @return the length of the log when the snapshot was taken, to be passed
+     *         to {@link #recover(Path, long)}
+     * @throws IOException if the snapshot cannot be read or was taken from
+     *                     another input
+     */
+    public long loadSnapshot(final Path path) throws IOException {
+        return new BankSnapshot(users, commerciants, accountDirectory, cardRegistry,
+                exchangeRateManager, idGenerator, splitPayments)
+                .decode(SnapshotInput.map(path));
+    }
+
+    /**
+     * This method is used to run a command through its handler.
+     *
+     * @param command the command to be executed
+     * @param output the output sink
+     */
+    private void dispatch(final CommandInput command, final OutputSink output) {
+        CommandType type = command.getCommandType();
+        Command handler = type == null ? null : handlers.get(type);
+        if (handler == null) {
+            ObjectNode outputNode = objectMapper.createObjectNode();
+            outputNode.put("error", "Invalid command");
+            output.add(outputNode);
+            return;
+        }
+        handler.execute(command, objectMapper, output);
+    }
+
+    /**
+     * This method is used to execute the commands, collecting the outputs into
+     * an array.
+     *
+     * @param output the output array
+     */
+    public void executeCommands(final ArrayNode output) {
+        executeCommands(new ArrayNodeOutput(output));
+    }
 }
@@ -0,0 +1,508 @@
+package org.poo.banksystem;
+
+import org.poo.commands.SplitPaymentData;
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+import org.poo.utils.IdGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of the state of a bank.
+ * <p>
+ * The users and commerciants come from the input, so they are not written: a
+ * snapshot is loaded into a bank created from the same input, and only what
+ * the commands changed is restored. The exchange rates can be updated after
+ * the input was read, so every version of them is written, along with the
+ * currencies in the order they got their ids. Objects referenced from several
+ * places (cards, accounts, users, commerciants) are written once, in tables,
+ * and referenced by their position in the table everywhere else, so the
+ * restored bank shares them exactly as the original one did.
+ * </p>
+ */
+final class BankSnapshot {
+    private static final int MAGIC = 0x42414E4B;
+    private static final int VERSION = 3;
+    private static final int CLASSIC = 0;
+    private static final int SAVINGS = 1;
+    private static final int BUSINESS = 2;
+
+    private final List<User> users;
+    private final List<Commerciant> commerciants;
+    private final AccountDirectory accountDirectory;
+    private final CardRegistry cardRegistry;
+    private final ExchangeRateManager exchangeRateManager;
+    private final IdGenerator idGenerator;
+    private final Map<Integer, SplitPaymentData> splitPayments;
+    private final Map<User, Integer> userIds = new IdentityHashMap<>();
+    private final Map<Commerciant, Integer> commerciantIds = new IdentityHashMap<>();
+    private final Map<Account, Integer> accountIds = new IdentityHashMap<>();
+    private final List<Account> accounts = new ArrayList<>();
+    private final Map<Card, Integer> cardIds = new IdentityHashMap<>();
+    private final List<Card> cards = new ArrayList<>();
+
+    /**
+     * Constructor for BankSnapshot.
+     *
+     * @param users               the users of the bank
+     * @param commerciants        the commerciants of the bank
+     * @param accountDirectory    the account directory of the bank
+     * @param cardRegistry        the card registry of the bank
+     * @param exchangeRateManager the exchange rate manager of the bank
+     * @param idGenerator         the generator of IBANs and card numbers of the bank
+     * @param splitPayments       the pending split payments of the bank, by timestamp
+     */
+    BankSnapshot(final List<User> users, final List<Commerciant> commerciants,
+                 final AccountDirectory accountDirectory, final CardRegistry cardRegistry,
+                 final ExchangeRateManager exchangeRateManager, final IdGenerator idGenerator,
+                 final Map<Integer, SplitPaymentData> splitPayments) {
+        this.users = users;
+        this.commerciants = commerciants;
+        this.accountDirectory = accountDirectory;
+        this.cardRegistry = cardRegistry;
+        this.exchangeRateManager = exchangeRateManager;
+        this.idGenerator = idGenerator;
+        this.splitPayments = splitPayments;
+        for (User user : users) {
+            userIds.put(user, userIds.size());
+        }
+        for (Commerciant commerciant : commerciants) {
+            commerciantIds.put(commerciant, commerciantIds.size());
+        }
+    }
+
+    /**
+     * Encodes the current state of the bank, streaming it to a channel.
+     *
+     * @param logPosition the length of the write-ahead log when the state was taken
+     * @param channel     the channel the snapshot is written to
+     * @throws IOException if the channel cannot be written to
+     */
+    void encode(final long logPosition, final WritableByteChannel channel) throws IOException {
+        collectAccounts();
+        SnapshotOutput output = new SnapshotOutput(channel);
+        try {
+            writeState(logPosition, output);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.flush();
+    }
+
+    private void writeState(final long logPosition, final SnapshotOutput output) {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(logPosition);
+        output.writeLong(idGenerator.getGeneratedIBANs());
+        output.writeLong(idGenerator.getGeneratedCardNumbers());
+        output.writeInt(users.size());
+        for (User user : users) {
+            output.writeString(user.getEmail());
+        }
+        output.writeInt(commerciants.size());
+        exchangeRateManager.writeTo(output);
+
+        output.writeInt(cards.size());
+        for (Card card : cards) {
+            output.writeString(card.getCardNumber());
+            output.writeString(card.getStatus());
+            output.writeBoolean(card.isOneTime());
+            output.writeBoolean(card.isAlreadyUsed());
+        }
+        output.writeInt(accounts.size());
+        for (Account account : accounts) {
+            writeAccount(account, output);
+        }
+        for (User user : users) {
+            writeUser(user, output);
+        }
+        writeDirectory(output);
+        writeRegistry(output);
+        writeSplitPayments(output);
+    }
+
+    /**
+     * Restores a state encoded by {@link #encode} into a bank created from the
+     * same input that has not executed any command yet.
+     *
+     * @param input the snapshot
+     * @return the length of the write-ahead log when the state was taken
+     * @throws IOException if the snapshot is not valid for this bank
+     */
+    long decode(final SnapshotInput input) throws IOException {
+        if (accountDirectory.size() > 0 || cardRegistry.size() > 0) {
+            throw new IllegalStateException("A snapshot can only be loaded into a new bank");
+        }
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Not a bank snapshot");
+        }
+        long logPosition = input.readLong();
+        long ibans = input.readLong();
+        long cardNumbers = input.readLong();
+        if (input.readInt() != users.size()) {
+            throw new IOException("The snapshot was taken with other users");
+        }
+        for (User user : users) {
+            if (!user.getEmail().equals(input.readString())) {
+                throw new IOException("The snapshot was taken with other users");
+            }
+        }
+        if (input.readInt() != commerciants.size()) {
+            throw new IOException("The snapshot was taken with other commerciants");
+        }
+        idGenerator.restore(ibans, cardNumbers);
+        exchangeRateManager.readFrom(input);
+
+        int cardCount = input.readInt();
+        for (int i = 0; i < cardCount; i++) {
+            Card card = new Card(input.readString(), input.readString());
+            card.setOneTime(input.readBoolean());
+            card.setAlreadyUsed(input.readBoolean());
+            cards.add(card);
+        }
+        int accountCount = input.readInt();
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(readAccount(input));
+        }
+        for (User user : users) {
+            readUser(user, input);
+        }
+        readDirectory(input);
+        readRegistry(input);
+        readSplitPayments(input);
+        return logPosition;
+    }
+
+    /**
+     * Gathers every account still referenced by the bank, deleted ones included,
+     * along with their cards.
+     */
+    private void collectAccounts() {
+        for (User user : users) {
+            user.getAccounts().forEach(this::addAccount);
+            user.getBusinessAssociations().keySet().forEach(this::addAccount);
+        }
+        for (AccountDirectory.Entry entry : accountDirectory.entries()) {
+            addAccount(entry.getAccount());
+        }
+        cardRegistry.forEach(entry -> {
+            addAccount(entry.getAccount());
+            addCard(entry.getCard());
+        });
+        for (SplitPaymentData splitPayment : splitPayments.values()) {
+            splitPayment.getAccounts().forEach(this::addAccount);
+        }
+    }
+
+    private void addAccount(final Account account) {
+        if (accountIds.putIfAbsent(account, accounts.size()) == null) {
+            accounts.add(account);
+            account.getCards().forEach(this::addCard);
+        }
+    }
+
+    private void addCard(final Card card) {
+        if (cardIds.putIfAbsent(card, cards.size()) == null) {
+            cards.add(card);
+        }
+    }
+
+    private void writeAccount(final Account account, final SnapshotOutput output) {
+        if (account instanceof BusinessAccount businessAccount) {
+            output.writeInt(BUSINESS);
+            output.writeInt(userIds.get(businessAccount.getOwner()));
+        } else if (account instanceof SavingsAccount savingsAccount) {
+            output.writeInt(SAVINGS);
+            output.writeDouble(savingsAccount.getInterestRate());
+        } else {
+            output.writeInt(CLASSIC);
+            output.writeString(account.getType());
+        }
+        output.writeString(account.getIBAN());
+        output.writeDouble(account.getBalance());
+        output.writeString(account.getCurrency());
+        output.writeInt(account.getCards().size());
+        for (Card card : account.getCards()) {
+            output.writeInt(cardIds.get(card));
+        }
+        output.writeDouble(account.getMinBalance());
+        output.writeString(account.getPlanType());
+        output.writeDouble(account.getTotalSpendingsForCashback());
+        output.writeInt(account.getNrTransactionsPerCommerciant().size());
+        for (Map.Entry<String, Integer> entry
+                : account.getNrTransactionsPerCommerciant().entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeInt(entry.getValue());
+        }
+        output.writeInt(account.getDiscounts().size());
+        for (Map.Entry<String, Double> entry : account.getDiscounts().entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeDouble(entry.getValue());
+        }
+        output.writeInt(account.getSplitPaymentAmounts().size());
+        for (Map.Entry<Integer, Double> entry : account.getSplitPaymentAmounts().entrySet()) {
+            output.writeInt(entry.getKey());
+            output.writeDouble(entry.getValue());
+        }
+        account.getTransactions().writeTo(output);
+        account.getCommerciantSpendings().writeTo(output);
+        if (account instanceof BusinessAccount businessAccount) {
+            writeUsers(businessAccount.getManagers(), output);
+            writeUsers(businessAccount.getEmployees(), output);
+            output.writeDouble(businessAccount.getDepositLimit());
+            output.writeDouble(businessAccount.getSpendingLimit());
+            businessAccount.getManagerSpendings().writeTo(output, userIds::get);
+            businessAccount.getEmployeeSpendings().writeTo(output, userIds::get);
+            businessAccount.getManagerDeposits().writeTo(output, userIds::get);
+            businessAccount.getEmployeeDeposits().writeTo(output, userIds::get);
+            businessAccount.getCommerciantPayments().writeTo(output, commerciantIds::get,
+                    userIds::get);
+        }
+    }
+
+    private Account readAccount(final SnapshotInput input) throws IOException {
+        int kind = input.readInt();
+        User owner = null;
+        double interestRate = 0.0;
+        String type = null;
+        switch (kind) {
+            case BUSINESS -> owner = users.get(input.readInt());
+            case SAVINGS -> interestRate = input.readDouble();
+            case CLASSIC -> type = input.readString();
+            default -> throw new IOException("Unknown account kind " + kind);
+        }
+        String iban = input.readString();
+        double balance = input.readDouble();
+        String currency = input.readString();
+        Account account = switch (kind) {
+            case BUSINESS -> new BusinessAccount(iban, balance, currency, owner, 0.0);
+            case SAVINGS -> new SavingsAccount(iban, balance, currency, interestRate);
+            default -> new Account(iban, balance, currency, type);
+        };
+        int currencyId = exchangeRateManager.findCurrencyId(currency);
+        if (currencyId < 0) {
+            throw new IOException("Unknown currency " + currency);
+        }
+        account.setCurrencyId(currencyId);
+        int cardCount = input.readInt();
+        for (int i = 0; i < cardCount; i++) {
+            account.addCard(cards.get(input.readInt()));
+        }
+        account.setMinBalance(input.readDouble());
+        String planType = input.readString();
+        if (planType != null) {
+            account.setPlanType(planType);
+        }
+        account.setTotalSpendingsForCashback(input.readDouble());
+        int commerciantCount = input.readInt();
+        for (int i = 0; i < commerciantCount; i++) {
+            String commerciant = input.readString();
+            account.getNrTransactionsPerCommerciant().put(commerciant, input.readInt());
+        }
+        account.getDiscounts().clear();
+        int discountCount = input.readInt();
+        for (int i = 0; i < discountCount; i++) {
+            String category = input.readString();
+            account.setDiscount(category, input.readDouble());
+        }
+        int splitCount = input.readInt();
+        for (int i = 0; i < splitCount; i++) {
+            int timestamp = input.readInt();
+            account.getSplitPaymentAmounts().put(timestamp, input.readDouble());
+        }
+        account.getTransactions().readFrom(input);
+        account.getCommerciantSpendings().readFrom(input);
+        if (account instanceof BusinessAccount businessAccount) {
+            businessAccount.getManagers().addAll(readUsers(input));
+            businessAccount.getEmployees().addAll(readUsers(input));
+            businessAccount.setDepositLimit(input.readDouble());
+            businessAccount.setSpendingLimit(input.readDouble());
+            businessAccount.getManagerSpendings().readFrom(input, users::get);
+            businessAccount.getEmployeeSpendings().readFrom(input, users::get);
+            businessAccount.getManagerDeposits().readFrom(input, users::get);
+            businessAccount.getEmployeeDeposits().readFrom(input, users::get);
+            businessAccount.getCommerciantPayments().readFrom(input, commerciants::get,
+                    users::get);
+        }
+        return account;
+    }
+
+    private void writeUser(final User user, final SnapshotOutput output) {
+        output.writeString(user.getPlanType());
+        output.writeInt(user.getSilverTransactions());
+        writeAccounts(user.getAccounts(), output);
+        output.writeInt(user.getAliases().size());
+        for (Map.Entry<String, String> entry : user.getAliases().entrySet()) {
+            output.writeString(entry.getKey());
+            output.writeString(entry.getValue());
+        }
+        output.writeInt(user.getSplitPaymentResponses().size());
+        for (Map.Entry<Integer, String> entry : user.getSplitPaymentResponses().entrySet()) {
+            output.writeInt(entry.getKey());
+            output.writeString(entry.getValue());
+        }
+        output.writeInt(user.getBusinessAssociations().size());
+        for (Map.Entry<BusinessAccount, String> entry
+                : user.getBusinessAssociations().entrySet()) {
+            output.writeInt(accountIds.get(entry.getKey()));
+            output.writeString(entry.getValue());
+        }
+        user.getTransactions().writeTo(output);
+    }
+
+    private void readUser(final User user, final SnapshotInput input) {
+        user.setPlanType(input.readString());
+        user.setSilverTransactions(input.readInt());
+        user.getAccounts().addAll(readAccounts(input));
+        int aliasCount = input.readInt();
+        for (int i = 0; i < aliasCount; i++) {
+            String alias = input.readString();
+            user.setAlias(alias, input.readString());
+        }
+        int responseCount = input.readInt();
+        for (int i = 0; i < responseCount; i++) {
+            int timestamp = input.readInt();
+            user.getSplitPaymentResponses().put(timestamp, input.readString());
+        }
+        int associationCount = input.readInt();
+        for (int i = 0; i < associationCount; i++) {
+            BusinessAccount account = (BusinessAccount) accounts.get(input.readInt());
+            user.getBusinessAssociations().put(account, input.readString());
+        }
+        user.getTransactions().readFrom(input);
+    }
+
+    private void writeDirectory(final SnapshotOutput output) {
+        output.writeInt(accountDirectory.size());
+        for (AccountDirectory.Entry entry : accountDirectory.entries()) {
+            output.writeInt(accountIds.get(entry.getAccount()));
+            output.writeInt(userIds.get(entry.getOwner()));
+            writeUsers(entry.holders(), output);
+        }
+    }
+
+    private void readDirectory(final SnapshotInput input) {
+        int entryCount = input.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            Account account = accounts.get(input.readInt());
+            accountDirectory.register(account, users.get(input.readInt()));
+            for (User holder : readUsers(input)) {
+                accountDirectory.addHolder(account.getIBAN(), holder);
+            }
+        }
+        // the aliases of the directory are the ones of the users, already read
+        for (User user : users) {
+            for (Map.Entry<String, String> alias : user.getAliases().entrySet()) {
+                accountDirectory.setAlias(user, alias.getKey(), alias.getValue());
+            }
+        }
+    }
+
+    private void writeRegistry(final SnapshotOutput output) {
+        output.writeInt(cardRegistry.size());
+        cardRegistry.forEach(entry -> {
+            output.writeInt(cardIds.get(entry.getCard()));
+            output.writeInt(accountIds.get(entry.getAccount()));
+            output.writeInt(userIds.get(entry.getHolder()));
+        });
+    }
+
+    private void readRegistry(final SnapshotInput input) {
+        int entryCount = input.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            Card card = cards.get(input.readInt());
+            Account account = accounts.get(input.readInt());
+            cardRegistry.register(card, account, users.get(input.readInt()));
+        }
+    }
+
+    private void writeSplitPayments(final SnapshotOutput output) {
+        output.writeInt(splitPayments.size());
+        for (Map.Entry<Integer, SplitPaymentData> entry : splitPayments.entrySet()) {
+            SplitPaymentData splitPayment = entry.getValue();
+            output.writeInt(entry.getKey());
+            output.writeDouble(splitPayment.getAmount());
+            output.writeString(splitPayment.getCurrency());
+            writeUsers(splitPayment.getUsers(), output);
+            writeAccounts(splitPayment.getAccounts(), output);
+            output.writeInt(splitPayment.getAccountsIbans().size());
+            for (String iban : splitPayment.getAccountsIbans()) {
+                output.writeString(iban);
+            }
+            output.writeString(splitPayment.getType());
+            List<Double> amounts = splitPayment.getAmountForUsers();
+            output.writeInt(amounts == null ? -1 : amounts.size());
+            if (amounts != null) {
+                for (double amount : amounts) {
+                    output.writeDouble(amount);
+                }
+            }
+        }
+    }
+
+    private void readSplitPayments(final SnapshotInput input) {
+        splitPayments.clear();
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            int timestamp = input.readInt();
+            double amount = input.readDouble();
+            String currency = input.readString();
+            List<User> involved = readUsers(input);
+            List<Account> splitAccounts = readAccounts(input);
+            int ibanCount = input.readInt();
+            List<String> ibans = new ArrayList<>(ibanCount);
+            for (int j = 0; j < ibanCount; j++) {
+                ibans.add(input.readString());
+            }
+            String type = input.readString();
+            int amountCount = input.readInt();
+            List<Double> amounts = null;
+            if (amountCount >= 0) {
+                amounts = new ArrayList<>(amountCount);
+                for (int j = 0; j < amountCount; j++) {
+                    amounts.add(input.readDouble());
+                }
+            }
+            splitPayments.put(timestamp, new SplitPaymentData(amount, currency, involved,
+                    splitAccounts, ibans, type, amounts));
+        }
+    }
+
+    private void writeUsers(final Iterable<User> list, final SnapshotOutput output) {
+        List<Integer> ids = new ArrayList<>();
+        list.forEach(user -> ids.add(userIds.get(user)));
+        output.writeInt(ids.size());
+        ids.forEach(output::writeInt);
+    }
+
+    private List<User> readUsers(final SnapshotInput input) {
+        int count = input.readInt();
+        List<User> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(users.get(input.readInt()));
+        }
+        return list;
+    }
+
+    private void writeAccounts(final List<? extends Account> list, final SnapshotOutput output) {
+        output.writeInt(list.size());
+        for (Account account : list) {
+            output.writeInt(accountIds.get(account));
+        }
+    }
+
+    private List<Account> readAccounts(final SnapshotInput input) {
+        int count = input.readInt();
+        List<Account> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(accounts.get(input.readInt()));
+        }
+        return list;
+    }
+}
@@ -1,9 +1,7 @@
 package org.poo.banksystem;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 public class BusinessAccount extends Account {
     private final User owner;
@@ -11,13 +9,11 @@ public class BusinessAccount extends Account {
     private final List<User> employees = new ArrayList<>();
     private double depositLimit;
     private double spendingLimit;
-    private Map<User, Double> managerSpendings = new LinkedHashMap<>();
-    private Map<User, Double> employeeSpendings = new LinkedHashMap<>();
-    private Map<User, Double> managerDeposits = new LinkedHashMap<>();
-    private Map<User, Double> employeeDeposits = new LinkedHashMap<>();
-    private Map<Commerciant, Double> commerciantPayments = new LinkedHashMap<>();
-    private Map<Commerciant, List<User>> commerciantEmployees = new LinkedHashMap<>();
-    private Map<Commerciant, List<User>> commerciantManagers = new LinkedHashMap<>();
+    private final AssociateLedger managerSpendings = new AssociateLedger();
+    private final AssociateLedger employeeSpendings = new AssociateLedger();
+    private final AssociateLedger managerDeposits = new AssociateLedger();
+    private final AssociateLedger employeeDeposits = new AssociateLedger();
+    private final CommerciantPayments commerciantPayments = new CommerciantPayments();
 
     /**
      * Constructor for the BusinessAccount class.
@@ -131,7 +127,7 @@ public class BusinessAccount extends Account {
      *
      * @return the manager spendings
      */
-    public Map<User, Double> getManagerSpendings() {
+    public AssociateLedger getManagerSpendings() {
         return managerSpendings;
     }
 
@@ -140,7 +136,7 @@ public class BusinessAccount extends Account {
      *
      * @return the employee spendings
      */
-    public Map<User, Double> getEmployeeSpendings() {
+    public AssociateLedger getEmployeeSpendings() {
         return employeeSpendings;
     }
 
@@ -149,7 +145,7 @@ public class BusinessAccount extends Account {
      *
      * @return the manager deposits
      */
-    public Map<User, Double> getManagerDeposits() {
+    public AssociateLedger getManagerDeposits() {
         return managerDeposits;
     }
 
@@ -158,7 +154,7 @@ public class BusinessAccount extends Account {
      *
      * @return the employee deposits
      */
-    public Map<User, Double> getEmployeeDeposits() {
+    public AssociateLedger getEmployeeDeposits() {
         return employeeDeposits;
     }
 
@@ -167,25 +163,7 @@ public class BusinessAccount extends Account {
      *
      * @return the commerciant payments
      */
-    public Map<Commerciant, Double> getCommerciantPayments() {
+    public CommerciantPayments getCommerciantPayments() {
         return commerciantPayments;
     }
-
-    /**
-     * Getter for the commerciant employees.
-     *
-     * @return the commerciant employees
-     */
-    public Map<Commerciant, List<User>> getCommerciantEmployees() {
-        return commerciantEmployees;
-    }
-
-    /**
-     * Getter for the commerciant managers.
-     *
-     * @return the commerciant managers
-     */
-    public Map<Commerciant, List<User>> getCommerciantManagers() {
-        return commerciantManagers;
-    }
 }
@@ -0,0 +1,141 @@
+package org.poo.banksystem;
+
+import org.poo.utils.LongHashMap;
+
+import java.util.function.Consumer;
+
+/**
+ * Bank-wide index of all the cards, keyed by card number.
+ * <p>
+ * Card numbers are 16 digits long, so they are stored as primitive long keys
+ * instead of strings. Each entry gives back the card, the account it belongs to
+ * and the user that created it.
+ * </p>
+ */
+public class CardRegistry {
+    public static final int CARD_NUMBER_LENGTH = 16;
+    private static final int RADIX = 10;
+    private final LongHashMap<Entry> entries = new LongHashMap<>();
+
+    /**
+     * A registered card together with its account and its holder.
+     */
+    public static final class Entry {
+        private final Card card;
+        private final Account account;
+        private final User holder;
+
+        private Entry(final Card card, final Account account, final User holder) {
+            this.card = card;
+            this.account = account;
+            this.holder = holder;
+        }
+
+        /**
+         * Getter for the card.
+         *
+         * @return the card
+         */
+        public Card getCard() {
+            return card;
+        }
+
+        /**
+         * Getter for the account the card belongs to.
+         *
+         * @return the account
+         */
+        public Account getAccount() {
+            return account;
+        }
+
+        /**
+         * Getter for the user that created the card.
+         *
+         * @return the holder
+         */
+        public User getHolder() {
+            return holder;
+        }
+    }
+
+    /**
+     * Converts a card number to its numeric key.
+     *
+     * @param cardNumber the card number
+     * @return the key, or -1 if the string is not a valid card number
+     */
+    public static long toKey(final String cardNumber) {
+        if (cardNumber == null || cardNumber.length() != CARD_NUMBER_LENGTH) {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < CARD_NUMBER_LENGTH; i++) {
+            int digit = cardNumber.charAt(i) - '0';
+            if (digit < 0 || digit >= RADIX) {
+                return -1;
+            }
+            key = key * RADIX + digit;
+        }
+        return key;
+    }
+
+    /**
+     * Registers a newly created card.
+     *
+     * @param card    the card
+     * @param account the account the card belongs to
+     * @param holder  the user that created the card
+     */
+    public void register(final Card card, final Account account, final User holder) {
+        entries.put(toKey(card.getCardNumber()), new Entry(card, account, holder));
+    }
+
+    /**
+     * Removes a card from the registry.
+     *
+     * @param cardNumber the card number
+     */
+    public void unregister(final String cardNumber) {
+        entries.remove(toKey(cardNumber));
+    }
+
+    /**
+     * Removes all the cards of an account from the registry.
+     *
+     * @param account the account
+     */
+    public void unregisterAll(final Account account) {
+        for (Card card : account.getCards()) {
+            unregister(card.getCardNumber());
+        }
+    }
+
+    /**
+     * Looks up a card by its number.
+     *
+     * @param cardNumber the card number
+     * @return the entry, or null if there is no such card
+     */
+    public Entry lookup(final String cardNumber) {
+        return entries.get(toKey(cardNumber));
+    }
+
+    /**
+     * Getter for the number of registered cards.
+     *
+     * @return the number of cards
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Performs an action for every registered card, in no particular order.
+     *
+     * @param action the action to be performed
+     */
+    void forEach(final Consumer<Entry> action) {
+        entries.forEachValue(action);
+    }
+}
@@ -0,0 +1,271 @@
+package org.poo.banksystem;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.poo.commands.CommandType;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Executes the commands of a bank on a pool of workers, running at the same
+ * time the commands that cannot affect each other.
+ * <p>
+ * Before a command is scheduled, its footprint is worked out: the users whose
+ * data it may read or change, found from the accounts, cards and emails it
+ * names. Every account is locked through all the users that hold it, so two
+ * commands conflict exactly when their footprints share a user, and a command
+ * only starts after the previous commands sharing a user with it are done.
+ * Commands that change what is shared by the whole bank (the accounts, cards
+ * and aliases that exist, the split payments, the generated IBANs and card
+ * numbers, the known currencies) or that read all the users are run alone,
+ * after every command before them is done.
+ * </p>
+ * <p>
+ * Every command writes its outputs aside, and the outputs are passed on in the
+ * order the commands were submitted in, so they are the same as when the
+ * commands are executed one after the other.
+ * </p>
+ * <p>
+ * Snapshots of the bank are written at barriers: after every command submitted
+ * before them and before any command submitted after them, on a worker.
+ * </p>
+ */
+public final class CommandScheduler implements AutoCloseable {
+    private static final int IN_FLIGHT_PER_WORKER = 64;
+
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
+    private final CardRegistry cardRegistry;
+    private final ExchangeRateManager exchangeRateManager;
+    private final Consumer<CommandInput> log;
+    private final BiConsumer<CommandInput, OutputSink> dispatcher;
+    private final OutputSink output;
+    private final ExecutorService workers;
+    private final int maxInFlight;
+    private final Map<User, CompletableFuture<Void>> lastCommands = new HashMap<>();
+    private final Deque<Scheduled> inFlight = new ArrayDeque<>();
+    // the latest task run at a barrier, which every later command waits for
+    private CompletableFuture<Void> barrier;
+
+    /**
+     * Constructor for CommandScheduler.
+     *
+     * @param userDirectory       the user directory of the bank
+     * @param accountDirectory    the account directory of the bank
+     * @param cardRegistry        the card registry of the bank
+     * @param exchangeRateManager the exchange rate manager of the bank
+     * @param log                 records a command before it is scheduled
+     * @param dispatcher          executes a command
+     * @param threads             the number of workers
+     * @param output              the output sink
+     */
+    CommandScheduler(final UserDirectory userDirectory, final AccountDirectory accountDirectory,
+                     final CardRegistry cardRegistry,
+                     final ExchangeRateManager exchangeRateManager,
+                     final Consumer<CommandInput> log,
+                     final BiConsumer<CommandInput, OutputSink> dispatcher,
+                     final int threads, final OutputSink output) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of workers must be positive");
+        }
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
+        this.cardRegistry = cardRegistry;
+        this.exchangeRateManager = exchangeRateManager;
+        this.log = log;
+        this.dispatcher = dispatcher;
+        this.output = output;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.maxInFlight = threads * IN_FLIGHT_PER_WORKER;
+    }
+
+    /**
+     * Schedules a command. The command is copied, so the object can be reused
+     * for the next command as soon as this method returns.
+     *
+     * @param command the command
+     */
+    public void submit(final CommandInput command) {
+        log.accept(command);
+        Set<User> footprint = footprint(command);
+        if (footprint == null) {
+            drain();
+            dispatcher.accept(command, output);
+            return;
+        }
+        CommandInput copy = command.copy();
+        List<JsonNode> outputs = new ArrayList<>();
+        CompletableFuture<?>[] previous = Stream.concat(
+                        footprint.stream().map(lastCommands::get), Stream.of(barrier))
+                .filter(Objects::nonNull)
+                .toArray(CompletableFuture<?>[]::new);
+        CompletableFuture<Void> done = CompletableFuture.allOf(previous)
+                .thenRunAsync(() -> dispatcher.accept(copy, outputs::add), workers);
+        for (User user : footprint) {
+            lastCommands.put(user, done);
+        }
+        inFlight.add(new Scheduled(done, outputs));
+        writeFinished();
+        if (inFlight.size() >= maxInFlight) {
+            writeOldest();
+        }
+    }
+
+    /**
+     * Runs a task on one of the workers once every command submitted before it
+     * is done, and before any command submitted after it starts, so the task
+     * sees the state between the two without stopping the thread submitting
+     * the commands. The later commands run once the task is over, whether it
+     * fails or not.
+     *
+     * @param task the task
+     * @return completes once the task is over
+     */
+    CompletableFuture<Void> runAtBarrier(final Runnable task) {
+        CompletableFuture<?>[] previous = inFlight.stream()
+                .map(Scheduled::done)
+                .toArray(CompletableFuture<?>[]::new);
+        CompletableFuture<Void> result = CompletableFuture.allOf(previous)
+                .thenRunAsync(task, workers);
+        // a failed command reports its own failure when its outputs are written
+        barrier = result.handle((value, failure) -> null);
+        lastCommands.clear();
+        inFlight.add(new Scheduled(barrier, List.of()));
+        return result;
+    }
+
+    /**
+     * Checks if commands can still be submitted.
+     *
+     * @return false once the scheduler is closed, true otherwise
+     */
+    boolean isOpen() {
+        return !workers.isShutdown();
+    }
+
+    /**
+     * Waits for every scheduled command, writes the remaining outputs and stops
+     * the workers.
+     */
+    @Override
+    public void close() {
+        try {
+            drain();
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Works out the users a command may read or change.
+     *
+     * @param command the command
+     * @return the users, or null if the command must run alone
+     */
+    private Set<User> footprint(final CommandInput command) {
+        Set<User> users = new HashSet<>();
+        CommandType type = command.getCommandType();
+        if (type == null) {
+            // only writes an error
+            return users;
+        }
+        if (command.getCurrency() != null
+                && !exchangeRateManager.hasCurrencyId(command.getCurrency())) {
+            return null;
+        }
+        switch (type) {
+            case PAY_ONLINE, CASH_WITHDRAWAL, CHECK_CARD_STATUS -> {
+                CardRegistry.Entry entry = cardRegistry.lookup(command.getCardNumber());
+                if (entry != null) {
+                    if (type == CommandType.PAY_ONLINE && entry.getCard().isOneTime()) {
+                        // the card is replaced by a newly generated one
+                        return null;
+                    }
+                    users.add(entry.getHolder());
+                    addHolders(users, entry.getAccount().getIBAN());
+                }
+            }
+            case SEND_MONEY -> {
+                addHolders(users, command.getAccount());
+                addHolders(users, accountDirectory.resolveAlias(command.getReceiver()));
+            }
+            case ADD_FUNDS, SET_MINIMUM_BALANCE, PRINT_TRANSACTIONS, REPORT, SPENDINGS_REPORT,
+                 ADD_INTEREST, CHANGE_INTEREST_RATE, WITHDRAW_SAVINGS, UPGRADE_PLAN,
+                 CHANGE_DEPOSIT_LIMIT, CHANGE_SPENDING_LIMIT, BUSINESS_REPORT ->
+                    addHolders(users, command.getAccount());
+            default -> {
+                return null;
+            }
+        }
+        if (command.getEmail() != null) {
+            User user = userDirectory.find(command.getEmail());
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private void addHolders(final Set<User> users, final String iban) {
+        AccountDirectory.Entry entry = accountDirectory.lookup(iban);
+        if (entry != null) {
+            users.addAll(entry.holders());
+        }
+    }
+
+    /**
+     * Writes the outputs of the commands that are done, up to the first one
+     * that is not.
+     */
+    private void writeFinished() {
+        while (!inFlight.isEmpty() && inFlight.peek().done().isDone()) {
+            writeOldest();
+        }
+    }
+
+    /**
+     * Waits for the oldest scheduled command and writes its outputs.
+     */
+    private void writeOldest() {
+        Scheduled oldest = inFlight.poll();
+        try {
+            oldest.done().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        oldest.outputs().forEach(output::add);
+    }
+
+    /**
+     * Waits for every scheduled command and writes their outputs.
+     */
+    private void drain() {
+        while (!inFlight.isEmpty()) {
+            writeOldest();
+        }
+        lastCommands.clear();
+        barrier = null;
+    }
+
+    private record Scheduled(CompletableFuture<Void> done, List<JsonNode> outputs) {
+    }
+}
@@ -0,0 +1,164 @@
+package org.poo.banksystem;
+
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * The payments made to commerciants by the associates of a business account.
+ * <p>
+ * Every commerciant has a time-ordered series of the total it received, along
+ * with who made each payment and whether they made it as a manager or as an
+ * employee, so the payments of any time window are found by binary search.
+ * </p>
+ */
+public final class CommerciantPayments {
+    private final Map<Commerciant, Payments> payments = new LinkedHashMap<>();
+
+    /**
+     * Records a payment to a commerciant.
+     *
+     * @param commerciant the commerciant that was paid
+     * @param payer       the associate that paid
+     * @param byManager   true if the associate paid as a manager, false if as an employee
+     * @param timestamp   the timestamp of the payment
+     * @param amount      the amount paid
+     */
+    public void record(final Commerciant commerciant, final User payer, final boolean byManager,
+                       final int timestamp, final double amount) {
+        payments.computeIfAbsent(commerciant, paid -> new Payments())
+                .add(payer, byManager, timestamp, amount);
+    }
+
+    /**
+     * Gets the commerciants paid between two timestamps.
+     *
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the commerciants, in the order they were first paid in
+     */
+    public List<Commerciant> paidBetween(final int startTimestamp, final int endTimestamp) {
+        List<Commerciant> commerciants = new ArrayList<>();
+        for (Map.Entry<Commerciant, Payments> entry : payments.entrySet()) {
+            if (entry.getValue().received.changesBetween(startTimestamp, endTimestamp)
+                    .length > 0) {
+                commerciants.add(entry.getKey());
+            }
+        }
+        return commerciants;
+    }
+
+    /**
+     * Gets the total received by a commerciant between two timestamps.
+     *
+     * @param commerciant    the commerciant
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the total, or 0 if the commerciant was never paid
+     */
+    public double receivedBetween(final Commerciant commerciant, final int startTimestamp,
+                                  final int endTimestamp) {
+        Payments paid = payments.get(commerciant);
+        return paid == null ? 0.0 : paid.received.between(startTimestamp, endTimestamp);
+    }
+
+    /**
+     * Gets the associates that paid a commerciant between two timestamps, once
+     * for every payment they made.
+     *
+     * @param commerciant    the commerciant
+     * @param managers       true for the payments made as a manager, false for the
+     *                       ones made as an employee
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the associates, in the order they paid in
+     */
+    public List<User> payersBetween(final Commerciant commerciant, final boolean managers,
+                                    final int startTimestamp, final int endTimestamp) {
+        List<User> payers = new ArrayList<>();
+        Payments paid = payments.get(commerciant);
+        if (paid == null) {
+            return payers;
+        }
+        for (int payment : paid.received.changesBetween(startTimestamp, endTimestamp)) {
+            if (paid.byManager[payment] == managers) {
+                payers.add(paid.payers[payment]);
+            }
+        }
+        return payers;
+    }
+
+    /**
+     * Writes the payments to a snapshot.
+     *
+     * @param output         the snapshot being written
+     * @param commerciantIds gives the position of a commerciant in the snapshot
+     * @param userIds        gives the position of an associate in the snapshot
+     */
+    void writeTo(final SnapshotOutput output, final ToIntFunction<Commerciant> commerciantIds,
+                 final ToIntFunction<User> userIds) {
+        output.writeInt(payments.size());
+        for (Map.Entry<Commerciant, Payments> entry : payments.entrySet()) {
+            Payments paid = entry.getValue();
+            output.writeInt(commerciantIds.applyAsInt(entry.getKey()));
+            output.writeInt(paid.size);
+            for (int i = 0; i < paid.size; i++) {
+                output.writeInt(userIds.applyAsInt(paid.payers[i]));
+                output.writeBoolean(paid.byManager[i]);
+            }
+            paid.received.writeTo(output);
+        }
+    }
+
+    /**
+     * Restores the payments read from a snapshot written by {@link #writeTo}.
+     *
+     * @param input        the snapshot being read
+     * @param commerciants gives the commerciant at a position in the snapshot
+     * @param users        gives the associate at a position in the snapshot
+     */
+    void readFrom(final SnapshotInput input, final IntFunction<Commerciant> commerciants,
+                  final IntFunction<User> users) {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            Payments paid = payments.computeIfAbsent(commerciants.apply(input.readInt()),
+                    commerciant -> new Payments());
+            int size = input.readInt();
+            paid.payers = new User[Math.max(size, Payments.DEFAULT_CAPACITY)];
+            paid.byManager = new boolean[paid.payers.length];
+            for (int j = 0; j < size; j++) {
+                paid.payers[j] = users.apply(input.readInt());
+                paid.byManager[j] = input.readBoolean();
+            }
+            paid.size = size;
+            paid.received.readFrom(input);
+        }
+    }
+
+    private static final class Payments {
+        private static final int DEFAULT_CAPACITY = 4;
+        private final CumulativeSeries received = new CumulativeSeries();
+        private User[] payers = new User[DEFAULT_CAPACITY];
+        private boolean[] byManager = new boolean[DEFAULT_CAPACITY];
+        private int size;
+
+        private void add(final User payer, final boolean asManager, final int timestamp,
+                         final double amount) {
+            if (size == payers.length) {
+                payers = Arrays.copyOf(payers, size * 2);
+                byManager = Arrays.copyOf(byManager, size * 2);
+            }
+            payers[size] = payer;
+            byManager[size] = asManager;
+            size++;
+            received.add(timestamp, amount);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.poo.banksystem;
+
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The card payments of an account, grouped by commerciant.
+ * <p>
+ * The commerciants are kept sorted by name as they are added, and the payments
+ * to each of them are kept in primitive columns in the order they were made, so
+ * the totals spent in a time window are found by binary search without going
+ * through the other transactions of the account.
+ * </p>
+ */
+public final class CommerciantSpendings {
+    private final Map<String, Payments> payments =
+            new TreeMap<>(Comparator.nullsFirst(String::compareTo));
+
+    /**
+     * Records a card payment.
+     *
+     * @param commerciant the commerciant that was paid
+     * @param timestamp   the timestamp of the payment
+     * @param amount      the amount paid, in the currency of the account
+     */
+    public void record(final String commerciant, final int timestamp, final double amount) {
+        payments.computeIfAbsent(commerciant, name -> new Payments()).add(timestamp, amount);
+    }
+
+    /**
+     * Gets the totals spent at each commerciant between two timestamps. Only the
+     * commerciants paid in the window are included.
+     *
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the totals, ordered by the name of the commerciant
+     */
+    public Map<String, Double> totalsBetween(final int startTimestamp, final int endTimestamp) {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (Map.Entry<String, Payments> entry : payments.entrySet()) {
+            entry.getValue().addTotalBetween(entry.getKey(), startTimestamp, endTimestamp,
+                    totals);
+        }
+        return totals;
+    }
+
+    /**
+     * Writes the payments to a snapshot.
+     *
+     * @param output the snapshot being written
+     */
+    void writeTo(final SnapshotOutput output) {
+        output.writeInt(payments.size());
+        for (Map.Entry<String, Payments> entry : payments.entrySet()) {
+            Payments paid = entry.getValue();
+            output.writeString(entry.getKey());
+            output.writeInt(paid.size);
+            for (int i = 0; i < paid.size; i++) {
+                output.writeInt(paid.timestamps[i]);
+                output.writeDouble(paid.amounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Records the payments read from a snapshot written by {@link #writeTo}.
+     *
+     * @param input the snapshot being read
+     */
+    void readFrom(final SnapshotInput input) {
+        int commerciants = input.readInt();
+        for (int i = 0; i < commerciants; i++) {
+            String commerciant = input.readString();
+            int count = input.readInt();
+            for (int j = 0; j < count; j++) {
+                int timestamp = input.readInt();
+                record(commerciant, timestamp, input.readDouble());
+            }
+        }
+    }
+
+    private static final class Payments {
+        private static final int DEFAULT_CAPACITY = 4;
+        private int size;
+        private int[] timestamps = new int[DEFAULT_CAPACITY];
+        private double[] amounts = new double[DEFAULT_CAPACITY];
+        private boolean sortedByTimestamp = true;
+
+        private void add(final int timestamp, final double amount) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            if (size > 0 && timestamp < timestamps[size - 1]) {
+                sortedByTimestamp = false;
+            }
+            timestamps[size] = timestamp;
+            amounts[size] = amount;
+            size++;
+        }
+
+        private void addTotalBetween(final String commerciant, final int startTimestamp,
+                                     final int endTimestamp, final Map<String, Double> totals) {
+            // the amounts are added one by one, in the order they were paid, so
+            // the totals are rounded exactly as when summing the transactions
+            double total = 0.0;
+            boolean found = false;
+            if (sortedByTimestamp) {
+                int from = firstAfter(startTimestamp - 1L);
+                int to = firstAfter(endTimestamp);
+                for (int i = from; i < to; i++) {
+                    total += amounts[i];
+                }
+                found = from < to;
+            } else {
+                for (int i = 0; i < size; i++) {
+                    if (timestamps[i] >= startTimestamp && timestamps[i] <= endTimestamp) {
+                        total += amounts[i];
+                        found = true;
+                    }
+                }
+            }
+            if (found) {
+                totals.put(commerciant, total);
+            }
+        }
+
+        private int firstAfter(final long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (timestamps[middle] <= timestamp) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.poo.banksystem;
+
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+
+import java.util.Arrays;
+
+/**
+ * A running total recorded after every change, together with the timestamp of
+ * the change.
+ * <p>
+ * The change over a time window is the difference between the totals recorded
+ * around it, found by binary search. Changes are expected to be recorded in
+ * timestamp order; if one is not, windows are answered by going through all
+ * the changes instead.
+ * </p>
+ */
+final class CumulativeSeries {
+    private static final int DEFAULT_CAPACITY = 4;
+    private int size;
+    private int[] timestamps = new int[DEFAULT_CAPACITY];
+    private double[] totals = new double[DEFAULT_CAPACITY];
+    private boolean sortedByTimestamp = true;
+
+    /**
+     * Adds an amount to the running total.
+     *
+     * @param timestamp the timestamp of the change
+     * @param amount    the amount to be added
+     */
+    void add(final int timestamp, final double amount) {
+        set(timestamp, total() + amount);
+    }
+
+    /**
+     * Replaces the running total.
+     *
+     * @param timestamp the timestamp of the change
+     * @param total     the new total
+     */
+    void set(final int timestamp, final double total) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            totals = Arrays.copyOf(totals, size * 2);
+        }
+        if (size > 0 && timestamp < timestamps[size - 1]) {
+            sortedByTimestamp = false;
+        }
+        timestamps[size] = timestamp;
+        totals[size] = total;
+        size++;
+    }
+
+    /**
+     * Gets the running total after the last change.
+     *
+     * @return the total, or 0 if nothing was recorded
+     */
+    double total() {
+        return totalBefore(size);
+    }
+
+    /**
+     * Gets the change of the running total between two timestamps.
+     *
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the change over the window
+     */
+    double between(final int startTimestamp, final int endTimestamp) {
+        if (startTimestamp > endTimestamp) {
+            return 0.0;
+        }
+        if (!sortedByTimestamp) {
+            double change = 0.0;
+            for (int i = 0; i < size; i++) {
+                if (timestamps[i] >= startTimestamp && timestamps[i] <= endTimestamp) {
+                    change += totals[i] - totalBefore(i);
+                }
+            }
+            return change;
+        }
+        return totalBefore(firstAfter(endTimestamp))
+                - totalBefore(firstAfter(startTimestamp - 1L));
+    }
+
+    /**
+     * Gets the positions of the changes recorded between two timestamps, in the
+     * order they were recorded in.
+     *
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp   the last timestamp of the window
+     * @return the positions of the changes in the window
+     */
+    int[] changesBetween(final int startTimestamp, final int endTimestamp) {
+        if (sortedByTimestamp) {
+            int from = firstAfter(startTimestamp - 1L);
+            int to = Math.max(from, firstAfter(endTimestamp));
+            int[] changes = new int[to - from];
+            for (int i = 0; i < changes.length; i++) {
+                changes[i] = from + i;
+            }
+            return changes;
+        }
+        int[] changes = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] >= startTimestamp && timestamps[i] <= endTimestamp) {
+                changes[count++] = i;
+            }
+        }
+        return Arrays.copyOf(changes, count);
+    }
+
+    /**
+     * Writes the changes to a snapshot.
+     *
+     * @param output the snapshot being written
+     */
+    void writeTo(final SnapshotOutput output) {
+        output.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            output.writeInt(timestamps[i]);
+            output.writeDouble(totals[i]);
+        }
+    }
+
+    /**
+     * Records the changes read from a snapshot written by {@link #writeTo}.
+     *
+     * @param input the snapshot being read
+     */
+    void readFrom(final SnapshotInput input) {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            int timestamp = input.readInt();
+            set(timestamp, input.readDouble());
+        }
+    }
+
+    private double totalBefore(final int index) {
+        return index == 0 ? 0.0 : totals[index - 1];
+    }
+
+    private int firstAfter(final long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -1,18 +1,94 @@
 package org.poo.banksystem;
 
 import org.poo.fileio.ExchangeInput;
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Keeps the exchange rates between every pair of currencies.
+ * <p>
+ * Currencies are interned into small integer ids and the rates are stored in a
+ * matrix indexed by those ids, so conversions don't go through any map.
+ * Missing rates are stored as NaN.
+ * </p>
+ * <p>
+ * Every update made at a later timestamp starts a new version of the matrix, so
+ * amounts can also be converted with the rates in effect at a given timestamp.
+ * A version only copies the rows it changes and shares the others with the
+ * previous version.
+ * </p>
+ * <p>
+ * The rates given directly (by the input or by later updates) are kept apart
+ * from the derived ones. The closure overwrites each derived rate with the
+ * product through the last linked intermediate currency, so its bits depend on
+ * every step before it; the currencies linked by given rates form separate
+ * groups, though, and the closure of one group never reads the rates of
+ * another. An update therefore only recomputes the group of the changed pair,
+ * with the same loop the full closure runs for every group, and gives exactly
+ * the rates a full recomputation would.
+ * </p>
+ * <p>
+ * Converted amounts are rounded to 14 decimals. The {@link ConversionMode#PRIMITIVE}
+ * mode does that with plain doubles and only falls back to {@link BigDecimal} when
+ * the amount is too close to a rounding boundary for the two to be told apart,
+ * so both modes give the same results.
+ * </p>
+ */
 public class ExchangeRateManager {
     public static final int SCALE_PRECISION = 20;
     public static final double EPSILON = 100000000000000.0;
-    private final Map<String, Map<String, Double>> exchangeRates = new HashMap<>();
+    public static final String RON = "RON";
+    /**
+     * Bound of the relative error between the double product and the decimal one,
+     * with a wide safety factor.
+     */
+    private static final double RELATIVE_ERROR = 1e-14;
+    /**
+     * Bound of the absolute error added by rounding the decimal product to
+     * SCALE_PRECISION digits, once scaled by EPSILON.
+     */
+    private static final double ABSOLUTE_ERROR = 1e-5;
+    private static final double HALF = 0.5;
+    /**
+     * Above this magnitude the scaled amount has no fractional bits left.
+     */
+    private static final double MAX_EXACT_SCALED = 0x1p52;
+    private final Map<String, Integer> currencyIds = new HashMap<>();
+    private int knownCurrencies;
+    private double[] directRates;
+    private double[][] rates;
+    private boolean[] ownedRows;
+    private int[] versionTimestamps = new int[1];
+    private final List<double[][]> versions = new ArrayList<>();
+    private final int ronId;
+    private ConversionMode conversionMode = ConversionMode.PRIMITIVE;
+
+    /**
+     * The ways an amount can be multiplied by a rate and rounded.
+     */
+    public enum ConversionMode {
+        /**
+         * Multiplies the decimal representations of the amount and the rate.
+         */
+        EXACT_DECIMAL,
+        /**
+         * Multiplies the doubles, falling back to EXACT_DECIMAL near rounding boundaries.
+         */
+        PRIMITIVE
+    }
+
     /**
      * Constructor for ExchangeRateManager.
      * @param exchangeInputs the exchange rates input
@@ -20,39 +96,389 @@ public class ExchangeRateManager {
     public ExchangeRateManager(final ExchangeInput[] exchangeInputs) {
         Set<String> currencies = new HashSet<>();
         for (ExchangeInput exchangeInput : exchangeInputs) {
-            exchangeRates
-                    .computeIfAbsent(exchangeInput.getFrom(), k -> new HashMap<>())
-                    .put(exchangeInput.getTo(), exchangeInput.getRate());
-            exchangeRates
-                    .computeIfAbsent(exchangeInput.getTo(), k -> new HashMap<>())
-                    .put(exchangeInput.getFrom(), 1.0 / exchangeInput.getRate());
-
             currencies.add(exchangeInput.getFrom());
             currencies.add(exchangeInput.getTo());
         }
-        calculateAllExchangeRates(currencies);
+        // the closure depends on the order the currencies are visited in,
+        // so the ids follow the iteration order of the set
+        for (String currency : currencies) {
+            currencyIds.put(currency, currencyIds.size());
+        }
+        knownCurrencies = currencyIds.size();
+        directRates = new double[knownCurrencies * knownCurrencies];
+        Arrays.fill(directRates, Double.NaN);
+
+        for (ExchangeInput exchangeInput : exchangeInputs) {
+            setDirectRate(currencyIds.get(exchangeInput.getFrom()),
+                    currencyIds.get(exchangeInput.getTo()), exchangeInput.getRate());
+        }
+        versionTimestamps[0] = Integer.MIN_VALUE;
+        versions.add(null);
+        calculateAllExchangeRates();
+        ronId = getCurrencyId(RON);
+    }
+
+    /**
+     * Updates the rate between two currencies, starting at the given timestamp.
+     *
+     * @param from the source currency
+     * @param to the target currency
+     * @param rate the new rate
+     * @param timestamp the timestamp the rate is in effect from
+     * @see #updateRate(String, String, double)
+     */
+    public void updateRate(final String from, final String to, final double rate,
+                           final int timestamp) {
+        startVersion(timestamp);
+        updateRate(from, to, rate);
+    }
+
+    /**
+     * Updates the rates of several pairs of currencies, starting at the given timestamp.
+     *
+     * @param exchangeInputs the new rates
+     * @param timestamp the timestamp the rates are in effect from
+     * @see #updateRates(ExchangeInput[])
+     */
+    public void updateRates(final ExchangeInput[] exchangeInputs, final int timestamp) {
+        startVersion(timestamp);
+        updateRates(exchangeInputs);
+    }
+
+    /**
+     * Starts a new version of the rates, unless the latest one has the same timestamp.
+     * @param timestamp the timestamp the new version is in effect from
+     */
+    private void startVersion(final int timestamp) {
+        int latest = versionTimestamps[versions.size() - 1];
+        if (timestamp < latest) {
+            throw new IllegalArgumentException("Exchange rates can't be updated in the past");
+        }
+        if (timestamp == latest) {
+            return;
+        }
+        if (versions.size() == versionTimestamps.length) {
+            versionTimestamps = Arrays.copyOf(versionTimestamps, versions.size() * 2);
+        }
+        versionTimestamps[versions.size()] = timestamp;
+        rates = rates.clone();
+        ownedRows = new boolean[rates.length];
+        versions.add(rates);
+    }
+
+    /**
+     * Replaces the latest version of the rates with a matrix that shares no rows.
+     * @param newRates the new matrix
+     */
+    private void replaceLatestVersion(final double[][] newRates) {
+        rates = newRates;
+        ownedRows = new boolean[rates.length];
+        Arrays.fill(ownedRows, true);
+        versions.set(versions.size() - 1, rates);
+    }
+
+    /**
+     * Gets a row of the latest version that can be written to, copying it
+     * first if it is shared with older versions.
+     * @param row the id of the row
+     * @return the row
+     */
+    private double[] writableRow(final int row) {
+        if (!ownedRows[row]) {
+            rates[row] = rates[row].clone();
+            ownedRows[row] = true;
+        }
+        return rates[row];
+    }
+
+    /**
+     * Updates the rate between two currencies.
+     * <p>
+     * Only the derived rates of the currencies linked to this pair are
+     * recomputed, and a rate equal to the current one changes nothing.
+     * </p>
+     *
+     * @param from the source currency
+     * @param to the target currency
+     * @param rate the new rate
+     * @throws IllegalArgumentException if the rate is not a positive finite number
+     */
+    public void updateRate(final String from, final String to, final double rate) {
+        checkRate(rate);
+        int fromId = getCurrencyId(from);
+        int toId = getCurrencyId(to);
+        growToKnownCurrencies();
+        if (setDirectRate(fromId, toId, rate)) {
+            closeGroup(linkedGroup(fromId));
+        }
+    }
+
+    /**
+     * Updates the rates of several pairs of currencies at once.
+     * <p>
+     * Every given rate is set first, and the closure of each group of linked
+     * currencies with a changed pair is then recomputed once. If one of the
+     * rates is not valid, none of them is set.
+     * </p>
+     *
+     * @param exchangeInputs the new rates
+     * @throws IllegalArgumentException if a rate is not a positive finite number
+     */
+    public void updateRates(final ExchangeInput[] exchangeInputs) {
+        for (ExchangeInput exchangeInput : exchangeInputs) {
+            checkRate(exchangeInput.getRate());
+        }
+        for (ExchangeInput exchangeInput : exchangeInputs) {
+            getCurrencyId(exchangeInput.getFrom());
+            getCurrencyId(exchangeInput.getTo());
+        }
+        growToKnownCurrencies();
+        boolean[] changed = new boolean[knownCurrencies];
+        for (ExchangeInput exchangeInput : exchangeInputs) {
+            int fromId = currencyIds.get(exchangeInput.getFrom());
+            if (setDirectRate(fromId, currencyIds.get(exchangeInput.getTo()),
+                    exchangeInput.getRate())) {
+                changed[fromId] = true;
+            }
+        }
+        boolean[] closed = new boolean[knownCurrencies];
+        for (int currency = 0; currency < knownCurrencies; currency++) {
+            if (changed[currency] && !closed[currency]) {
+                int[] group = linkedGroup(currency);
+                for (int member : group) {
+                    closed[member] = true;
+                }
+                closeGroup(group);
+            }
+        }
+    }
+
+    /**
+     * Checks that a rate can be stored, since missing rates are stored as NaN
+     * and every rate is also stored inverted.
+     * @param rate the rate
+     * @throws IllegalArgumentException if the rate is not a positive finite number
+     */
+    private static void checkRate(final double rate) {
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Invalid exchange rate " + rate);
+        }
     }
 
+    /**
+     * Sets the rate given for a pair of currencies, and its inverse.
+     * @param from the id of the source currency
+     * @param to the id of the target currency
+     * @param rate the rate
+     * @return false if the pair already had this rate, true otherwise
+     */
+    private boolean setDirectRate(final int from, final int to, final double rate) {
+        double inverse = 1.0 / rate;
+        int forward = from * knownCurrencies + to;
+        int backward = to * knownCurrencies + from;
+        if (directRates[forward] == rate && directRates[backward] == inverse) {
+            return false;
+        }
+        directRates[forward] = rate;
+        directRates[backward] = inverse;
+        return true;
+    }
 
     /**
-     * Calculates all possible exchange rates using the Floyd-Warshall algorithm.
-     * @param currencies the set of all currencies
+     * Makes room in the matrices for the currencies interned since they were built.
      */
-    private void calculateAllExchangeRates(final Set<String> currencies) {
-        for (String k : currencies) {
-            for (String i : currencies) {
-                for (String j : currencies) {
-                    if (exchangeRates.containsKey(i) && exchangeRates.get(i).containsKey(k)
-                            && exchangeRates.containsKey(k)
-                            && exchangeRates.get(k).containsKey(j)) {
-                        double newRate = exchangeRates.get(i).get(k) * exchangeRates.get(k).get(j);
-                        exchangeRates
-                                .computeIfAbsent(i, x -> new HashMap<>())
-                                .put(j, newRate);
+    private void growToKnownCurrencies() {
+        int n = currencyIds.size();
+        if (n == knownCurrencies) {
+            return;
+        }
+        directRates = grow(directRates, knownCurrencies, n);
+        double[][] grownRates = new double[n][];
+        for (int i = 0; i < n; i++) {
+            grownRates[i] = new double[n];
+            Arrays.fill(grownRates[i], Double.NaN);
+            if (i < knownCurrencies) {
+                System.arraycopy(rates[i], 0, grownRates[i], 0, knownCurrencies);
+            }
+        }
+        replaceLatestVersion(grownRates);
+        knownCurrencies = n;
+    }
+
+    /**
+     * Copies a square matrix into a larger one, filling the new cells with NaN.
+     * @param matrix the matrix
+     * @param oldSize the size of the matrix
+     * @param newSize the new size
+     * @return the larger matrix
+     */
+    private static double[] grow(final double[] matrix, final int oldSize, final int newSize) {
+        double[] grown = new double[newSize * newSize];
+        Arrays.fill(grown, Double.NaN);
+        for (int i = 0; i < oldSize; i++) {
+            System.arraycopy(matrix, i * oldSize, grown, i * newSize, oldSize);
+        }
+        return grown;
+    }
+
+    /**
+     * Finds the currencies linked to a currency by given rates.
+     * @param start the id of the currency
+     * @return the ids of the linked currencies, start included, in ascending order
+     */
+    private int[] linkedGroup(final int start) {
+        int n = knownCurrencies;
+        boolean[] linked = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        linked[start] = true;
+        queue[tail++] = start;
+        while (head < tail) {
+            int current = queue[head++];
+            for (int next = 0; next < n; next++) {
+                if (!linked[next] && !Double.isNaN(directRates[current * n + next])) {
+                    linked[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        int[] group = new int[tail];
+        int size = 0;
+        for (int currency = 0; currency < n; currency++) {
+            if (linked[currency]) {
+                group[size++] = currency;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Calculates all possible exchange rates using the Floyd-Warshall algorithm,
+     * one group of linked currencies at a time.
+     */
+    private void calculateAllExchangeRates() {
+        int n = knownCurrencies;
+        double[][] closure = new double[n][n];
+        for (double[] row : closure) {
+            Arrays.fill(row, Double.NaN);
+        }
+        replaceLatestVersion(closure);
+        boolean[] closed = new boolean[n];
+        for (int currency = 0; currency < n; currency++) {
+            if (!closed[currency]) {
+                int[] group = linkedGroup(currency);
+                for (int member : group) {
+                    closed[member] = true;
+                }
+                closeGroup(group);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the derived rates between the currencies of a group using the
+     * Floyd-Warshall algorithm.
+     * <p>
+     * The rates of a group only depend on the given rates between its currencies,
+     * and the currencies are visited in ascending order, as when going through
+     * every currency, so the rates are the same as those of a full closure.
+     * </p>
+     * @param group the ids of the linked currencies, in ascending order
+     */
+    private void closeGroup(final int[] group) {
+        int n = knownCurrencies;
+        int m = group.length;
+        double[][] closure = new double[m][m];
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < m; j++) {
+                closure[i][j] = directRates[group[i] * n + group[j]];
+            }
+        }
+        for (int k = 0; k < m; k++) {
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < m; j++) {
+                    double rateIK = closure[i][k];
+                    double rateKJ = closure[k][j];
+                    if (!Double.isNaN(rateIK) && !Double.isNaN(rateKJ)) {
+                        closure[i][j] = rateIK * rateKJ;
                     }
                 }
             }
         }
+        for (int i = 0; i < m; i++) {
+            double[] row = writableRow(group[i]);
+            for (int j = 0; j < m; j++) {
+                row[group[j]] = closure[i][j];
+            }
+        }
+    }
+
+    /**
+     * Gets the id of a currency.
+     * <p>
+     * Currencies that don't appear in the exchange rates get a new id, which
+     * can only be converted to itself.
+     * </p>
+     *
+     * @param currency the currency
+     * @return the id of the currency
+     */
+    public int getCurrencyId(final String currency) {
+        Integer id = currencyIds.get(currency);
+        if (id == null) {
+            id = currencyIds.size();
+            currencyIds.put(currency, id);
+        }
+        return id;
+    }
+
+    /**
+     * Finds the id of a currency, without giving it one if it has none.
+     *
+     * @param currency the currency
+     * @return the id of the currency, or -1 if it has none
+     */
+    public int findCurrencyId(final String currency) {
+        Integer id = currencyIds.get(currency);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Checks if a currency already has an id, so getting its id will not add it.
+     *
+     * @param currency the currency
+     * @return true if the currency has an id, false otherwise
+     */
+    public boolean hasCurrencyId(final String currency) {
+        return currencyIds.containsKey(currency);
+    }
+
+    /**
+     * Getter for the id of RON, the currency all the fees and limits are expressed in.
+     *
+     * @return the id of RON
+     */
+    public int getRonId() {
+        return ronId;
+    }
+
+    /**
+     * Getter for the conversion mode.
+     *
+     * @return the conversion mode
+     */
+    public ConversionMode getConversionMode() {
+        return conversionMode;
+    }
+
+    /**
+     * Setter for the conversion mode.
+     *
+     * @param conversionMode the conversion mode
+     */
+    public void setConversionMode(final ConversionMode conversionMode) {
+        this.conversionMode = conversionMode;
     }
 
     /**
@@ -66,13 +492,227 @@ public class ExchangeRateManager {
         if (from.equals(to)) {
             return amount;
         }
-        if (exchangeRates.containsKey(from) && exchangeRates.get(from).containsKey(to)) {
-            BigDecimal amountBD = BigDecimal.valueOf(amount);
-            BigDecimal rateBD = BigDecimal.valueOf(exchangeRates.get(from).get(to));
-            BigDecimal convertedAmount = amountBD.multiply(rateBD);
-            return Math.round(convertedAmount.setScale(SCALE_PRECISION, RoundingMode.HALF_UP)
-                    .doubleValue() * EPSILON) / EPSILON;
+        return convert(amount, getCurrencyId(from), getCurrencyId(to));
+    }
+
+    /**
+     * Converts an amount from one currency to another, using the ids of the currencies.
+     * @param amount the amount to be converted
+     * @param fromId the id of the source currency
+     * @param toId the id of the target currency
+     * @return the converted amount
+     */
+    public double convert(final double amount, final int fromId, final int toId) {
+        return convert(amount, fromId, toId, rates);
+    }
+
+    /**
+     * Converts an amount from one currency to another, with the rates in effect
+     * at the given timestamp.
+     * @param amount the amount to be converted
+     * @param from the source currency
+     * @param to the target currency
+     * @param timestamp the timestamp
+     * @return the converted amount
+     */
+    public double convert(final double amount, final String from, final String to,
+                          final int timestamp) {
+        if (from.equals(to)) {
+            return amount;
+        }
+        return convert(amount, getCurrencyId(from), getCurrencyId(to), timestamp);
+    }
+
+    /**
+     * Converts an amount from one currency to another, using the ids of the currencies
+     * and the rates in effect at the given timestamp.
+     * @param amount the amount to be converted
+     * @param fromId the id of the source currency
+     * @param toId the id of the target currency
+     * @param timestamp the timestamp
+     * @return the converted amount
+     */
+    public double convert(final double amount, final int fromId, final int toId,
+                          final int timestamp) {
+        return convert(amount, fromId, toId, versionAt(timestamp));
+    }
+
+    /**
+     * Finds the version of the rates in effect at a timestamp.
+     * @param timestamp the timestamp
+     * @return the latest version that started at or before the timestamp
+     */
+    private double[][] versionAt(final int timestamp) {
+        int low = 0;
+        int high = versions.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (versionTimestamps[middle] <= timestamp) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return versions.get(low);
+    }
+
+    /**
+     * Converts an amount from one currency to another, with the given version of the rates.
+     * @param amount the amount to be converted
+     * @param fromId the id of the source currency
+     * @param toId the id of the target currency
+     * @param version the version of the rates
+     * @return the converted amount
+     */
+    private double convert(final double amount, final int fromId, final int toId,
+                           final double[][] version) {
+        if (fromId == toId) {
+            return amount;
+        }
+        if (fromId < version.length && toId < version[fromId].length) {
+            double rate = version[fromId][toId];
+            if (!Double.isNaN(rate)) {
+                if (conversionMode == ConversionMode.PRIMITIVE) {
+                    return multiplyPrimitive(amount, rate);
+                }
+                return multiplyDecimal(amount, rate);
+            }
         }
         throw new IllegalArgumentException("Invalid conversion");
     }
+
+    /**
+     * Multiplies an amount by a rate using their decimal representations.
+     * @param amount the amount
+     * @param rate the rate
+     * @return the product, rounded to 14 decimals
+     */
+    private static double multiplyDecimal(final double amount, final double rate) {
+        BigDecimal amountBD = BigDecimal.valueOf(amount);
+        BigDecimal rateBD = BigDecimal.valueOf(rate);
+        BigDecimal convertedAmount = amountBD.multiply(rateBD);
+        return Math.round(convertedAmount.setScale(SCALE_PRECISION, RoundingMode.HALF_UP)
+                .doubleValue() * EPSILON) / EPSILON;
+    }
+
+    /**
+     * Multiplies an amount by a rate using doubles.
+     * <p>
+     * The double product differs from the decimal one by a few ulps at most, which
+     * only changes the result when the scaled product is that close to a half.
+     * Those products, and the ones too large to have a fractional part, are
+     * handed to {@link #multiplyDecimal}.
+     * </p>
+     * @param amount the amount
+     * @param rate the rate
+     * @return the product, rounded to 14 decimals
+     */
+    private static double multiplyPrimitive(final double amount, final double rate) {
+        double scaled = amount * rate * EPSILON;
+        double magnitude = Math.abs(scaled);
+        if (!(magnitude < MAX_EXACT_SCALED)) {
+            return multiplyDecimal(amount, rate);
+        }
+        double fraction = scaled - Math.floor(scaled);
+        double margin = magnitude * RELATIVE_ERROR + ABSOLUTE_ERROR;
+        if (Math.abs(fraction - HALF) <= margin) {
+            return multiplyDecimal(amount, rate);
+        }
+        return Math.round(scaled) / EPSILON;
+    }
+
+    /**
+     * Writes the currencies, the given rates and every version of the rates to
+     * a snapshot. Rows shared between versions are written once.
+     *
+     * @param output the snapshot being written
+     */
+    void writeTo(final SnapshotOutput output) {
+        String[] currencies = new String[currencyIds.size()];
+        currencyIds.forEach((currency, id) -> currencies[id] = currency);
+        output.writeInt(currencies.length);
+        for (String currency : currencies) {
+            output.writeString(currency);
+        }
+        output.writeInt(knownCurrencies);
+        for (double rate : directRates) {
+            output.writeDouble(rate);
+        }
+        Map<double[], Integer> rowIds = new IdentityHashMap<>();
+        output.writeInt(versions.size());
+        for (int v = 0; v < versions.size(); v++) {
+            double[][] version = versions.get(v);
+            output.writeInt(versionTimestamps[v]);
+            output.writeInt(version.length);
+            for (double[] row : version) {
+                Integer rowId = rowIds.putIfAbsent(row, rowIds.size());
+                output.writeInt(rowId == null ? -1 : rowId);
+                if (rowId == null) {
+                    output.writeInt(row.length);
+                    for (double rate : row) {
+                        output.writeDouble(rate);
+                    }
+                }
+            }
+        }
+        for (boolean owned : ownedRows) {
+            output.writeBoolean(owned);
+        }
+        output.writeInt(conversionMode.ordinal());
+    }
+
+    /**
+     * Restores the state written by {@link #writeTo} into a manager created
+     * from the same exchange rates that has not been updated yet.
+     *
+     * @param input the snapshot being read
+     * @throws IOException if the snapshot was taken with other exchange rates
+     */
+    void readFrom(final SnapshotInput input) throws IOException {
+        String[] currencies = new String[input.readInt()];
+        for (int i = 0; i < currencies.length; i++) {
+            currencies[i] = input.readString();
+        }
+        for (Map.Entry<String, Integer> entry : currencyIds.entrySet()) {
+            int id = entry.getValue();
+            if (id >= currencies.length || !entry.getKey().equals(currencies[id])) {
+                throw new IOException("The snapshot was taken with other exchange rates");
+            }
+        }
+        for (int i = 0; i < currencies.length; i++) {
+            currencyIds.put(currencies[i], i);
+        }
+        knownCurrencies = input.readInt();
+        directRates = new double[knownCurrencies * knownCurrencies];
+        for (int i = 0; i < directRates.length; i++) {
+            directRates[i] = input.readDouble();
+        }
+        List<double[]> rows = new ArrayList<>();
+        int versionCount = input.readInt();
+        versionTimestamps = new int[Math.max(1, versionCount)];
+        versions.clear();
+        for (int v = 0; v < versionCount; v++) {
+            versionTimestamps[v] = input.readInt();
+            double[][] version = new double[input.readInt()][];
+            for (int i = 0; i < version.length; i++) {
+                int rowId = input.readInt();
+                if (rowId >= 0) {
+                    version[i] = rows.get(rowId);
+                    continue;
+                }
+                version[i] = new double[input.readInt()];
+                for (int j = 0; j < version[i].length; j++) {
+                    version[i][j] = input.readDouble();
+                }
+                rows.add(version[i]);
+            }
+            versions.add(version);
+        }
+        rates = versions.get(versions.size() - 1);
+        ownedRows = new boolean[rates.length];
+        for (int i = 0; i < ownedRows.length; i++) {
+            ownedRows[i] = input.readBoolean();
+        }
+        conversionMode = ConversionMode.values()[input.readInt()];
+    }
 }
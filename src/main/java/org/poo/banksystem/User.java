@@ -2,6 +2,7 @@ package org.poo.banksystem;
 
 import org.poo.fileio.UserInput;
 import org.poo.transactions.Transaction;
+import org.poo.transactions.TransactionLedger;
 
 import java.time.LocalDate;
 import java.time.Period;
@@ -21,7 +22,7 @@ public class User {
     private final String occupation;
     private List<Account> accounts;
     private String planType;
-    private List<Transaction> transactions;
+    private final TransactionLedger transactions = new TransactionLedger();
     private int silverTransactions = 0;
     private Map<String, String> aliases = new HashMap<>();
     private Map<Integer, String> splitPaymentResponses = new LinkedHashMap<>();
@@ -43,7 +44,6 @@ public class User {
         this.birthDate = birthDate;
         this.occupation = occupation;
         this.accounts = new ArrayList<>();
-        this.transactions = new ArrayList<>();
         if (occupation.equals("student")) {
             this.planType = "student";
         } else {
@@ -63,7 +63,6 @@ public class User {
         this.birthDate = userInput.getBirthDate();
         this.occupation = userInput.getOccupation();
         this.accounts = new ArrayList<>();
-        this.transactions = new ArrayList<>();
         if (occupation.equals("student")) {
             this.planType = "student";
         } else {
@@ -160,7 +159,7 @@ public class User {
      *
      * @return the transactions
      */
-    public List<Transaction> getTransactions() {
+    public TransactionLedger getTransactions() {
         return transactions;
     }
 
@@ -248,6 +247,33 @@ public class User {
         return silverTransactions;
     }
 
+    /**
+     * Setter for the number of silver transactions, used when restoring a snapshot.
+     *
+     * @param silverTransactions the number of silver transactions
+     */
+    void setSilverTransactions(final int silverTransactions) {
+        this.silverTransactions = silverTransactions;
+    }
+
+    /**
+     * Setter for the plan type of the user only, used when restoring a snapshot.
+     *
+     * @param planType the plan type
+     */
+    void setPlanType(final String planType) {
+        this.planType = planType;
+    }
+
+    /**
+     * Getter for the aliases.
+     *
+     * @return the aliases, with the accounts they stand for
+     */
+    Map<String, String> getAliases() {
+        return aliases;
+    }
+
     /**
      * Increments the number of silver transactions.
      */
@@ -255,6 +281,20 @@ public class User {
         silverTransactions++;
     }
 
+    /**
+     * Gets the first pending split payment, without answering it.
+     *
+     * @return the timestamp of the split payment, or -1 if none is pending
+     */
+    public int getFirstPendingSplitPayment() {
+        for (Map.Entry<Integer, String> entry : splitPaymentResponses.entrySet()) {
+            if (entry.getValue().equals("pending")) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
     /**
      * Accepts the first pending split payment.
      */
@@ -0,0 +1,64 @@
+package org.poo.banksystem;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Bank-wide index of all the users, keyed by email.
+ * <p>
+ * The users are registered once, in the order they appear in the input, and
+ * every command resolves the user it names through this index instead of
+ * scanning the list of users. When several users share an email, the first one
+ * registered is the one found, as when scanning the list. The directory also
+ * keeps the position of every user in that order, for the lookups that pick
+ * between several users the one a scan would have found.
+ * </p>
+ */
+public final class UserDirectory {
+    private final Map<String, User> usersByEmail = new HashMap<>();
+    private final Map<User, Integer> positions = new IdentityHashMap<>();
+
+    /**
+     * Registers a user, after every user that comes before it in the input.
+     *
+     * @param user the user
+     */
+    public void register(final User user) {
+        positions.putIfAbsent(user, positions.size());
+        usersByEmail.putIfAbsent(user.getEmail(), user);
+    }
+
+    /**
+     * Finds a user by email.
+     *
+     * @param email the email
+     * @return the first registered user with that email, or null if there is none
+     */
+    public User find(final String email) {
+        if (email == null) {
+            return null;
+        }
+        return usersByEmail.get(email);
+    }
+
+    /**
+     * Gets the position of a user in the order the users were registered in.
+     *
+     * @param user the user
+     * @return the position, or -1 if the user was never registered
+     */
+    public int positionOf(final User user) {
+        Integer position = positions.get(user);
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Getter for the number of registered users.
+     *
+     * @return the number of users
+     */
+    public int size() {
+        return positions.size();
+    }
+}
@@ -1,187 +1,221 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
+import org.poo.banksystem.AccountLocks;
 import org.poo.banksystem.ExchangeRateManager;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
+import org.poo.transactions.TransactionType;
 
 import java.util.List;
-
-import static org.poo.commands.SplitPayment.splitPayments;
+import java.util.Map;
 
 public class AcceptSplitPayment implements Command {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
     private final ExchangeRateManager exchangeRateManager;
     private final TransactionManager transactionManager;
+    private final AccountLocks accountLocks;
+    private final Map<Integer, SplitPaymentData> splitPayments;
 
     /**
      * Constructor for AcceptSplitPayment.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
      * @param exchangeRateManager the exchange rate manager
      * @param transactionManager the transaction manager
+     * @param accountLocks the account locks
+     * @param splitPayments the pending split payments of the bank, by timestamp
      */
-    public AcceptSplitPayment(final List<User> users, final ExchangeRateManager exchangeRateManager,
-                              final TransactionManager transactionManager) {
-        this.users = users;
+    public AcceptSplitPayment(final UserDirectory userDirectory,
+                              final AccountDirectory accountDirectory,
+                              final ExchangeRateManager exchangeRateManager,
+                              final TransactionManager transactionManager,
+                              final AccountLocks accountLocks,
+                              final Map<Integer, SplitPaymentData> splitPayments) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
         this.exchangeRateManager = exchangeRateManager;
         this.transactionManager = transactionManager;
+        this.accountLocks = accountLocks;
+        this.splitPayments = splitPayments;
     }
 
     /**
-     * This method is used to handle accepting a split payment.
+     * This method is used to handle accepting a split payment, holding the
+     * locks of every account of the split the user answers.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
+                        final OutputSink output) {
+        AccountLocks.Held held = accountLocks.lockAccounts(pendingAccounts(command));
+        try {
+            accept(command, objectMapper, output);
+        } finally {
+            held.close();
+        }
+    }
+
+    /**
+     * Finds the accounts of the split payment the user will answer.
+     * @param command the command to be executed
+     * @return the accounts, or none if the user has no pending split payment
+     */
+    private List<Account> pendingAccounts(final CommandInput command) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            SplitPaymentData splitPaymentData =
+                    splitPayments.get(user.getFirstPendingSplitPayment());
+            return splitPaymentData == null ? List.of() : splitPaymentData.getAccounts();
+        }
+        return List.of();
+    }
+
+    /**
+     * This method is used to accept the split payment.
+     * @param command the command to be executed
+     * @param objectMapper the object mapper
+     * @param output the output sink
+     */
+    private void accept(final CommandInput command, final ObjectMapper objectMapper,
+                        final OutputSink output) {
         boolean enoughFunds = true;
         String accountWithInsufficientFunds = "";
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                int timestamp = user.acceptFirstPendingSplitPayment();
-                if (timestamp == -1) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            int timestamp = user.acceptFirstPendingSplitPayment();
+            if (timestamp == -1) {
+                return;
+            }
+            SplitPaymentData splitPaymentData = splitPayments.get(timestamp);
+            List<Account> accounts = splitPaymentData.getAccounts();
+            List<User> usersInvolved = splitPaymentData.getUsers();
+            String type = splitPaymentData.getType();
+            for (User userInvolved : usersInvolved) {
+                if (!userInvolved.getSplitPaymentResponses().get(timestamp)
+                        .equals("accepted")) {
                     return;
                 }
-                SplitPaymentData splitPaymentData = splitPayments.get(timestamp);
-                List<Account> accounts = splitPaymentData.getAccounts();
-                List<User> usersInvolved = splitPaymentData.getUsers();
-                String type = splitPaymentData.getType();
-                for (User userInvolved : usersInvolved) {
-                    if (!userInvolved.getSplitPaymentResponses().get(timestamp)
-                            .equals("accepted")) {
-                        return;
-                    }
-                }
+            }
 
-                for (Account account : accounts) {
-                    double amount = account.getSplitPaymentAmounts().get(timestamp);
-                    double amountInRon = exchangeRateManager.convert(amount,
-                            account.getCurrency(), "RON");
-                    double totalAmount = amount + account.getTransactionFee(amountInRon, amount);
-                    if (account.getBalance() < totalAmount) {
-                        enoughFunds = false;
-                        accountWithInsufficientFunds = account.getIBAN();
-                        break;
-                    }
+            for (Account account : accounts) {
+                double amount = account.getSplitPaymentAmounts().get(timestamp);
+                double amountInRon = exchangeRateManager.convert(amount,
+                        account.getCurrencyId(), exchangeRateManager.getRonId());
+                double totalAmount = amount + account.getTransactionFee(amountInRon, amount);
+                if (account.getBalance() < totalAmount) {
+                    enoughFunds = false;
+                    accountWithInsufficientFunds = account.getIBAN();
+                    break;
                 }
-                if (type.equals("equal")) {
-                    if (!enoughFunds) {
-                        for (Account account : accounts) {
-                            User associatedUser = findUserByAccount(account);
-                            if (associatedUser == null) {
-                                return;
-                            }
-                            Transaction transaction = new Transaction.Builder()
-                                    .timestamp(timestamp)
-                                    .description(String.format("Split payment of %.2f %s",
-                                            splitPaymentData.getAmount(),
-                                            splitPaymentData.getCurrency()))
-                                    .splitPaymentType("equal")
-                                    .amount(String.valueOf(splitPaymentData.getAmount()
-                                            / accounts.size()))
-                                    .currency(splitPaymentData.getCurrency())
-                                    .involvedAccounts(splitPaymentData.getAccountsIbans())
-                                    .error("Account " + accountWithInsufficientFunds
-                                            + " has insufficient funds for a split payment.")
-                                    .build();
-                            transactionManager.addTransactionToUser(associatedUser.getEmail(),
-                                    transaction);
-                            transactionManager.addTransactionToAccount(associatedUser.getEmail(),
-                                    account.getIBAN(), transaction);
-                        }
-                        return;
-                    }
-
+            }
+            if (type.equals("equal")) {
+                if (!enoughFunds) {
                     for (Account account : accounts) {
                         User associatedUser = findUserByAccount(account);
                         if (associatedUser == null) {
                             return;
                         }
-                        double amount = account.getSplitPaymentAmounts().get(timestamp);
-                        double amountInRon = exchangeRateManager.convert(amount,
-                                account.getCurrency(), "RON");
-                        double totalAmount = amount + account.getTransactionFee(amountInRon,
-                                amount);
-                        account.pay(amount);
                         Transaction transaction = new Transaction.Builder()
                                 .timestamp(timestamp)
-                                .description(String.format("Split payment of %.2f %s",
+                                .type(TransactionType.SPLIT_PAYMENT,
                                         splitPaymentData.getAmount(),
-                                        splitPaymentData.getCurrency()))
+                                        splitPaymentData.getCurrency())
                                 .splitPaymentType("equal")
-                                .amount(String.valueOf(splitPaymentData.getAmount()
-                                        / accounts.size()))
+                                .amount(splitPaymentData.getAmount()
+                                        / accounts.size())
                                 .currency(splitPaymentData.getCurrency())
                                 .involvedAccounts(splitPaymentData.getAccountsIbans())
+                                .error("Account " + accountWithInsufficientFunds
+                                        + " has insufficient funds for a split payment.")
                                 .build();
-                        transactionManager.addTransactionToUser(associatedUser.getEmail(),
-                                transaction);
-                        transactionManager.addTransactionToAccount(associatedUser.getEmail(),
-                                account.getIBAN(), transaction);
+                        transactionManager.addTransaction(associatedUser, account, transaction);
                     }
                     return;
-                } else if (type.equals("custom")) {
-                    if (!enoughFunds) {
-                        for (Account account : accounts) {
-                            User associatedUser = findUserByAccount(account);
-                            if (associatedUser == null) {
-                                return;
-                            }
-                            Transaction transaction = new Transaction.Builder()
-                                    .timestamp(timestamp)
-                                    .description(String.format("Split payment of %.2f %s",
-                                            splitPaymentData.getAmount(),
-                                            splitPaymentData.getCurrency()))
-                                    .splitPaymentType("custom")
-                                    .amountForUsers(splitPaymentData.getAmountForUsers())
-                                    .currency(splitPaymentData.getCurrency())
-                                    .involvedAccounts(splitPaymentData.getAccountsIbans())
-                                    .error("Account " + accountWithInsufficientFunds
-                                            + " has insufficient funds for a split payment.")
-                                    .build();
-                            transactionManager.addTransactionToUser(associatedUser.getEmail(),
-                                    transaction);
-                            transactionManager.addTransactionToAccount(associatedUser.getEmail(),
-                                    account.getIBAN(), transaction);
-                        }
+                }
+
+                for (Account account : accounts) {
+                    User associatedUser = findUserByAccount(account);
+                    if (associatedUser == null) {
                         return;
                     }
-
+                    double amount = account.getSplitPaymentAmounts().get(timestamp);
+                    double amountInRon = exchangeRateManager.convert(amount,
+                            account.getCurrencyId(), exchangeRateManager.getRonId());
+                    double totalAmount = amount + account.getTransactionFee(amountInRon,
+                            amount);
+                    account.pay(amount);
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(timestamp)
+                            .type(TransactionType.SPLIT_PAYMENT,
+                                    splitPaymentData.getAmount(),
+                                    splitPaymentData.getCurrency())
+                            .splitPaymentType("equal")
+                            .amount(splitPaymentData.getAmount()
+                                    / accounts.size())
+                            .currency(splitPaymentData.getCurrency())
+                            .involvedAccounts(splitPaymentData.getAccountsIbans())
+                            .build();
+                    transactionManager.addTransaction(associatedUser, account, transaction);
+                }
+                return;
+            } else if (type.equals("custom")) {
+                if (!enoughFunds) {
                     for (Account account : accounts) {
                         User associatedUser = findUserByAccount(account);
                         if (associatedUser == null) {
                             return;
                         }
-                        double amount = account.getSplitPaymentAmounts().get(timestamp);
-                        double amountInRon = exchangeRateManager.convert(amount,
-                                account.getCurrency(), "RON");
-                        double totalAmount = amount + account.getTransactionFee(amountInRon,
-                                amount);
-                        account.pay(amount);
                         Transaction transaction = new Transaction.Builder()
                                 .timestamp(timestamp)
-                                .description(String.format("Split payment of %.2f %s",
+                                .type(TransactionType.SPLIT_PAYMENT,
                                         splitPaymentData.getAmount(),
-                                        splitPaymentData.getCurrency()))
+                                        splitPaymentData.getCurrency())
                                 .splitPaymentType("custom")
                                 .amountForUsers(splitPaymentData.getAmountForUsers())
                                 .currency(splitPaymentData.getCurrency())
                                 .involvedAccounts(splitPaymentData.getAccountsIbans())
+                                .error("Account " + accountWithInsufficientFunds
+                                        + " has insufficient funds for a split payment.")
                                 .build();
-                        transactionManager.addTransactionToUser(associatedUser.getEmail(),
-                                transaction);
-                        transactionManager.addTransactionToAccount(associatedUser.getEmail(),
-                                account.getIBAN(), transaction);
+                        transactionManager.addTransaction(associatedUser, account, transaction);
                     }
                     return;
                 }
 
+                for (Account account : accounts) {
+                    User associatedUser = findUserByAccount(account);
+                    if (associatedUser == null) {
+                        return;
+                    }
+                    double amount = account.getSplitPaymentAmounts().get(timestamp);
+                    double amountInRon = exchangeRateManager.convert(amount,
+                            account.getCurrencyId(), exchangeRateManager.getRonId());
+                    double totalAmount = amount + account.getTransactionFee(amountInRon,
+                            amount);
+                    account.pay(amount);
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(timestamp)
+                            .type(TransactionType.SPLIT_PAYMENT,
+                                    splitPaymentData.getAmount(),
+                                    splitPaymentData.getCurrency())
+                            .splitPaymentType("custom")
+                            .amountForUsers(splitPaymentData.getAmountForUsers())
+                            .currency(splitPaymentData.getCurrency())
+                            .involvedAccounts(splitPaymentData.getAccountsIbans())
+                            .build();
+                    transactionManager.addTransaction(associatedUser, account, transaction);
+                }
+                return;
             }
         }
 
@@ -200,13 +234,6 @@ public class AcceptSplitPayment implements Command {
      * @return the user
      */
     private User findUserByAccount(final Account account) {
-        for (User user : users) {
-            for (Account userAccount : user.getAccounts()) {
-                if (userAccount.equals(account)) {
-                    return user;
-                }
-            }
-        }
-        return null;
+        return accountDirectory.findFirstHolder(account.getIBAN());
     }
 }
@@ -1,72 +1,81 @@
 package org.poo.commands;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.BusinessAccount;
 import org.poo.banksystem.SavingsAccount;
 import org.poo.banksystem.User;
 import org.poo.banksystem.ExchangeRateManager;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 
 import org.poo.transactions.TransactionManager;
 import org.poo.transactions.Transaction;
-import org.poo.utils.Utils;
+import org.poo.transactions.TransactionType;
+import org.poo.utils.IdGenerator;
 
-import java.util.List;
 
 public class AddAccount implements Command {
-    private List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
     private final ExchangeRateManager exchangeRateManager;
     private final TransactionManager transactionManager;
+    private final IdGenerator idGenerator;
     private final static double DEFAULT_LIMIT = 500.0;
 
     /**
      * Constructor for AddAccount.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
+     * @param idGenerator the generator of IBANs
      */
-    public AddAccount(final List<User> users, final ExchangeRateManager exchangeRateManager,
-                      final TransactionManager transactionManager) {
-        this.users = users;
+    public AddAccount(final UserDirectory userDirectory, final AccountDirectory accountDirectory,
+                      final ExchangeRateManager exchangeRateManager,
+                      final TransactionManager transactionManager,
+                      final IdGenerator idGenerator) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
         this.exchangeRateManager = exchangeRateManager;
         this.transactionManager = transactionManager;
+        this.idGenerator = idGenerator;
     }
 
     /**
      * This method is used to add an account to a user.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                String iban = Utils.generateIBAN();
-                Account account;
-                if (command.getAccountType().equals("savings")) {
-                    account = new SavingsAccount(iban, 0.0,
-                            command.getCurrency(), command.getInterestRate());
-                } else if (command.getAccountType().equals("classic")) {
-                    account = new Account(iban, 0.0, command.getCurrency(),
-                            command.getAccountType());
-                } else {
-                    double initialLimits = exchangeRateManager.convert(DEFAULT_LIMIT,
-                            "RON", command.getCurrency());
-                    account = new BusinessAccount(iban, 0.0,
-                            command.getCurrency(), user, initialLimits);
-                }
-                account.setPlanType(user.getPlanType());
-                user.addAccount(account);
-                Transaction transaction = new Transaction.Builder()
-                        .timestamp(command.getTimestamp())
-                        .description("New account created")
-                        .build();
-                transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                transactionManager.addTransactionToAccount(user.getEmail(),
-                        account.getIBAN(), transaction);
-                break;
+                        final OutputSink output) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            String iban = idGenerator.nextIBAN();
+            int currencyId = exchangeRateManager.getCurrencyId(command.getCurrency());
+            Account account;
+            if (command.getAccountType().equals("savings")) {
+                account = new SavingsAccount(iban, 0.0,
+                        command.getCurrency(), command.getInterestRate());
+            } else if (command.getAccountType().equals("classic")) {
+                account = new Account(iban, 0.0, command.getCurrency(),
+                        command.getAccountType());
+            } else {
+                double initialLimits = exchangeRateManager.convert(DEFAULT_LIMIT,
+                        exchangeRateManager.getRonId(), currencyId);
+                account = new BusinessAccount(iban, 0.0,
+                        command.getCurrency(), user, initialLimits);
             }
+            account.setCurrencyId(currencyId);
+            account.setPlanType(user.getPlanType());
+            user.addAccount(account);
+            accountDirectory.register(account, user);
+            Transaction transaction = new Transaction.Builder()
+                    .timestamp(command.getTimestamp())
+                    .type(TransactionType.ACCOUNT_CREATED)
+                    .build();
+            transactionManager.addTransaction(user, account, transaction);
         }
     }
 }
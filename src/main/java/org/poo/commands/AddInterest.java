@@ -1,27 +1,27 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.SavingsAccount;
 import org.poo.banksystem.User;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
-
-import java.util.List;
+import org.poo.transactions.TransactionType;
 
 public class AddInterest implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
     private final TransactionManager transactionManager;
     /**
      * Constructor for AddInterest.
-     * @param users the users
+     * @param accountDirectory the account directory
      */
-    public AddInterest(final List<User> users,
+    public AddInterest(final AccountDirectory accountDirectory,
                        final TransactionManager transactionManager) {
-        this.users = users;
+        this.accountDirectory = accountDirectory;
         this.transactionManager = transactionManager;
     }
 
@@ -29,38 +29,38 @@ public class AddInterest implements Command {
      * This method is used to add interest to a savings account.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
+                        final OutputSink output) {
         String accountIBAN = command.getAccount();
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(accountIBAN)) {
-                    if (account.getType().equals("savings")) {
-                        SavingsAccount savingsAccount = (SavingsAccount) account;
-                        double interest = savingsAccount.getBalance()
-                                * savingsAccount.getInterestRate();
-                        savingsAccount.setBalance(savingsAccount.getBalance() + interest);
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("Interest rate income")
-                                .amount(String.valueOf(interest))
-                                .currency(account.getCurrency())
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                accountIBAN, transaction);
-                    } else {
-                        ObjectNode commandNode = objectMapper.createObjectNode();
-                        commandNode.put("command", "addInterest");
-                        commandNode.put("timestamp", command.getTimestamp());
-                        commandNode.putObject("output")
-                                .put("description", "This is not a savings account")
-                                .put("timestamp", command.getTimestamp());
-                        output.add(commandNode);
-                    }
+        AccountDirectory.Entry entry = accountDirectory.lookup(accountIBAN);
+        if (entry != null) {
+            Account account = entry.getAccount();
+            User user = entry.getFirstHolder();
+            if (account.getType().equals("savings")) {
+                SavingsAccount savingsAccount = (SavingsAccount) account;
+                double interest = savingsAccount.getBalance()
+                        * savingsAccount.getInterestRate();
+                savingsAccount.setBalance(savingsAccount.getBalance() + interest);
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.INTEREST_INCOME)
+                        .amount(interest)
+                        .currency(account.getCurrency())
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+            } else {
+                ObjectNode commandNode = objectMapper.createObjectNode();
+                commandNode.put("command", "addInterest");
+                commandNode.put("timestamp", command.getTimestamp());
+                commandNode.putObject("output")
+                        .put("description", "This is not a savings account")
+                        .put("timestamp", command.getTimestamp());
+                // every holder of the account reports it, as when going through the users
+                for (int i = 0; i < entry.getHolderCount(); i++) {
+                    output.add(commandNode);
                 }
             }
         }
@@ -4,36 +4,38 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.BusinessAccount;
 import org.poo.banksystem.Commerciant;
+import org.poo.banksystem.CommerciantPayments;
 import org.poo.banksystem.User;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
 
 public class BusinessReport implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
 
     /**
      * Constructor for BusinessReport.
-     * @param users the users
+     * @param accountDirectory the account directory
      */
-    public BusinessReport(final List<User> users) {
-        this.users = users;
+    public BusinessReport(final AccountDirectory accountDirectory) {
+        this.accountDirectory = accountDirectory;
     }
 
     /**
      * This method is used to generate a business report.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        Account account = findAccountByIBAN(command.getAccount());
+                        final OutputSink output) {
+        Account account = accountDirectory.findAccount(command.getAccount());
         if (account == null) {
             ObjectNode errorNode = objectMapper.createObjectNode();
             errorNode.put("command", "businessReport");
@@ -95,9 +97,9 @@ public class BusinessReport implements Command {
             managerNode.put("username", manager.getLastName() + " "
                     + manager.getFirstName());
             managerNode.put("spent", businessAccount.getManagerSpendings()
-                    .getOrDefault(manager, 0.0));
+                    .get(manager, startTimestamp, endTimestamp));
             managerNode.put("deposited", businessAccount.getManagerDeposits()
-                    .getOrDefault(manager, 0.0));
+                    .get(manager, startTimestamp, endTimestamp));
         }
 
         ArrayNode employeesArray = outputNode.putArray("employees");
@@ -106,23 +108,17 @@ public class BusinessReport implements Command {
             employeeNode.put("username", employee.getLastName() + " "
                     + employee.getFirstName());
             employeeNode.put("spent", businessAccount.getEmployeeSpendings()
-                    .getOrDefault(employee, 0.0));
+                    .get(employee, startTimestamp, endTimestamp));
             employeeNode.put("deposited", businessAccount.getEmployeeDeposits()
-                    .getOrDefault(employee, 0.0));
+                    .get(employee, startTimestamp, endTimestamp));
         }
 
-        double totalSpent = businessAccount.getManagerSpendings().values().stream()
-                .mapToDouble(Double::doubleValue)
-                .sum()
-                + businessAccount.getEmployeeSpendings().values().stream().
-                mapToDouble(Double::doubleValue).
-                sum();
-        double totalDeposited = businessAccount.getManagerDeposits().values().stream().
-                mapToDouble(Double::doubleValue)
-                .sum()
-                + businessAccount.getEmployeeDeposits().values().stream()
-                .mapToDouble(Double::doubleValue)
-                .sum();
+        double totalSpent = businessAccount.getManagerSpendings()
+                .total(startTimestamp, endTimestamp)
+                + businessAccount.getEmployeeSpendings().total(startTimestamp, endTimestamp);
+        double totalDeposited = businessAccount.getManagerDeposits()
+                .total(startTimestamp, endTimestamp)
+                + businessAccount.getEmployeeDeposits().total(startTimestamp, endTimestamp);
 
         outputNode.put("total spent", totalSpent);
         outputNode.put("total deposited", totalDeposited);
@@ -142,53 +138,29 @@ public class BusinessReport implements Command {
                                            final int startTimestamp,
                                            final int endTimestamp) {
         ArrayNode commerciantsArray = outputNode.putArray("commerciants");
-
-        businessAccount.getCommerciantPayments().entrySet().stream()
-                .sorted(Map.Entry.comparingByKey(Comparator.comparing(Commerciant::getName)))
-                .forEach(entry -> {
-                    Commerciant commerciant = entry.getKey();
-                    double totalReceived = entry.getValue();
-
-                    ObjectNode commerciantNode = commerciantsArray.addObject();
-                    commerciantNode.put("commerciant", commerciant.getName());
-                    commerciantNode.put("total received", totalReceived);
-
-                    ArrayNode managersArray = commerciantNode.putArray("managers");
-                    List<User> managers = businessAccount.getCommerciantManagers().get(commerciant);
-                    if (managers != null) {
-                        managers.stream()
-                                .sorted(Comparator.comparing(User::getLastName)
-                                        .thenComparing(User::getFirstName))
-                                .forEach(manager -> managersArray.add(manager.getLastName()
-                                        + " " + manager.getFirstName()));
-                    }
-
-                    ArrayNode employeesArray = commerciantNode.putArray("employees");
-                    List<User> employees = businessAccount.getCommerciantEmployees()
-                            .get(commerciant);
-                    if (employees != null) {
-                        employees.stream()
-                                .sorted(Comparator.comparing(User::getLastName)
-                                        .thenComparing(User::getFirstName))
-                                .forEach(employee -> employeesArray.add(employee.getLastName()
-                                        + " " + employee.getFirstName()));
-                    }
-                });
-    }
-
-    /**
-     * This method is used to find an account by IBAN.
-     * @param iban the IBAN
-     * @return the account
-     */
-    private Account findAccountByIBAN(final String iban) {
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(iban)) {
-                    return account;
-                }
-            }
+        CommerciantPayments payments = businessAccount.getCommerciantPayments();
+
+        List<Commerciant> commerciants = payments.paidBetween(startTimestamp, endTimestamp);
+        commerciants.sort(Comparator.comparing(Commerciant::getName));
+        for (Commerciant commerciant : commerciants) {
+            ObjectNode commerciantNode = commerciantsArray.addObject();
+            commerciantNode.put("commerciant", commerciant.getName());
+            commerciantNode.put("total received", payments.receivedBetween(commerciant,
+                    startTimestamp, endTimestamp));
+
+            ArrayNode managersArray = commerciantNode.putArray("managers");
+            payments.payersBetween(commerciant, true, startTimestamp, endTimestamp).stream()
+                    .sorted(Comparator.comparing(User::getLastName)
+                            .thenComparing(User::getFirstName))
+                    .forEach(manager -> managersArray.add(manager.getLastName()
+                            + " " + manager.getFirstName()));
+
+            ArrayNode employeesArray = commerciantNode.putArray("employees");
+            payments.payersBetween(commerciant, false, startTimestamp, endTimestamp).stream()
+                    .sorted(Comparator.comparing(User::getLastName)
+                            .thenComparing(User::getFirstName))
+                    .forEach(employee -> employeesArray.add(employee.getLastName()
+                            + " " + employee.getFirstName()));
         }
-        return null;
     }
 }
@@ -1,33 +1,43 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.Card;
+import org.poo.banksystem.CardRegistry;
 import org.poo.banksystem.ExchangeRateManager;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.TransactionManager;
 import org.poo.transactions.Transaction;
-import java.util.List;
-
+import org.poo.transactions.TransactionType;
 
 public class CashWithdrawal implements Command {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
+    private final CardRegistry cardRegistry;
     private final ExchangeRateManager exchangeRateManager;
     private final TransactionManager transactionManager;
 
     /**
      * Constructor for CashWithdrawal.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
+     * @param cardRegistry the card registry
      * @param exchangeRateManager the exchange rate manager
      * @param transactionManager the transaction manager
      */
-    public CashWithdrawal(final List<User> users,
+    public CashWithdrawal(final UserDirectory userDirectory,
+                          final AccountDirectory accountDirectory,
+                          final CardRegistry cardRegistry,
                           final ExchangeRateManager exchangeRateManager,
                           final TransactionManager transactionManager) {
-        this.users = users;
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
+        this.cardRegistry = cardRegistry;
         this.exchangeRateManager = exchangeRateManager;
         this.transactionManager = transactionManager;
     }
@@ -36,105 +46,89 @@ public class CashWithdrawal implements Command {
      * This method is used to handle cash withdrawals.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                for (Account account : user.getAccounts()) {
-                    for (Card card : account.getCards()) {
-                        if (card.getCardNumber().equals(command.getCardNumber())) {
-                            if (card.isAlreadyUsed()) {
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("Card has already been used")
-                                        .build();
-                                transactionManager.addTransactionToUser(user.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(user.getEmail(),
-                                        account.getIBAN(), transaction);
-                                return;
-                            }
-
-                            double amountInRon = command.getAmount();
-                            double amountInAccountCurrency = exchangeRateManager.convert(
-                                    amountInRon, "RON",
-                                    account.getCurrency());
-                            amountInAccountCurrency += account.getTransactionFee(amountInRon,
-                                    amountInAccountCurrency);
+                        final OutputSink output) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            CardRegistry.Entry cardEntry = cardRegistry.lookup(command.getCardNumber());
+            if (cardEntry != null
+                    && accountDirectory.isHeldBy(cardEntry.getAccount(), user)) {
+                Account account = cardEntry.getAccount();
+                Card card = cardEntry.getCard();
+                if (card.isAlreadyUsed()) {
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.CARD_ALREADY_USED)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
+                    return;
+                }
 
-                            if (account.getBalance() >= amountInAccountCurrency
-                                    && card.isActive()) {
-                                account.pay(amountInAccountCurrency);
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("Cash withdrawal of " + amountInRon)
-                                        .amount(String.valueOf(amountInRon))
-                                        .build();
-                                transactionManager.addTransactionToUser(user.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(user.getEmail(),
-                                        account.getIBAN(), transaction);
+                double amountInRon = command.getAmount();
+                double amountInAccountCurrency = exchangeRateManager.convert(
+                        amountInRon, exchangeRateManager.getRonId(),
+                        account.getCurrencyId());
+                amountInAccountCurrency += account.getTransactionFee(amountInRon,
+                        amountInAccountCurrency);
 
-                                if (card.isOneTime()) {
-                                    card.setAlreadyUsed(true);
-                                    return;
-                                }
-                                return;
-                            }
+                // cash withdrawals may go below the minimum balance, so only
+                // an empty account stops them
+                if (card.isActive() && account.tryPay(amountInAccountCurrency, 0.0)) {
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.CASH_WITHDRAWAL, amountInRon)
+                            .amount(amountInRon)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
 
-                            if (!card.isActive()) {
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("The card is frozen")
-                                        .build();
-                                transactionManager.addTransactionToUser(command.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(command.getEmail(),
-                                        account.getIBAN(), transaction);
-                                return;
-                            }
+                    if (card.isOneTime()) {
+                        card.setAlreadyUsed(true);
+                        return;
+                    }
+                    return;
+                }
 
-                            if (account.getBalance() < amountInAccountCurrency) {
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("Insufficient funds")
-                                        .build();
-                                transactionManager.addTransactionToUser(command.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(command.getEmail(),
-                                        account.getIBAN(), transaction);
-                                return;
-                            }
+                if (!card.isActive()) {
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.CARD_FROZEN)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
+                    return;
+                }
 
-                            if (account.getBalance() - amountInAccountCurrency
-                                    < account.getMinBalance()) {
-                                card.changeStatus("frozen");
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("The card is frozen")
-                                        .build();
-                                transactionManager.addTransactionToUser(command.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(command.getEmail(),
-                                        account.getIBAN(), transaction);
-                                return;
-                            }
-                        }
-                    }
+                if (account.getBalance() < amountInAccountCurrency) {
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.INSUFFICIENT_FUNDS)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
+                    return;
                 }
 
-                ObjectNode commandNode = objectMapper.createObjectNode();
-                commandNode.put("command", "cashWithdrawal");
-                commandNode.put("timestamp", command.getTimestamp());
-                commandNode.putObject("output").put("description",
-                                "Card not found")
-                        .put("timestamp", command.getTimestamp());
-                output.add(commandNode);
-                return;
+                if (account.getBalance() - amountInAccountCurrency
+                        < account.getMinBalance()) {
+                    card.changeStatus("frozen");
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.CARD_FROZEN)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
+                    return;
+                }
             }
+
+            ObjectNode commandNode = objectMapper.createObjectNode();
+            commandNode.put("command", "cashWithdrawal");
+            commandNode.put("timestamp", command.getTimestamp());
+            commandNode.putObject("output").put("description",
+                            "Card not found")
+                    .put("timestamp", command.getTimestamp());
+            output.add(commandNode);
+            return;
         }
 
         ObjectNode commandNode = objectMapper.createObjectNode();
@@ -1,29 +1,28 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.SavingsAccount;
 import org.poo.banksystem.User;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
-
-
-import java.util.List;
+import org.poo.transactions.TransactionType;
 
 public class ChangeInterestRate implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
     private final TransactionManager transactionManager;
 
     /**
      * Constructor for ChangeInterestRate.
-     * @param users the users
+     * @param accountDirectory the account directory
      */
-    public ChangeInterestRate(final List<User> users,
+    public ChangeInterestRate(final AccountDirectory accountDirectory,
                               final TransactionManager transactionManager) {
-        this.users = users;
+        this.accountDirectory = accountDirectory;
         this.transactionManager = transactionManager;
     }
 
@@ -31,36 +30,36 @@ public class ChangeInterestRate implements Command {
      * This method is used to change the interest rate of an account.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(command.getAccount())) {
-                    if (account.getType().equals("savings")) {
-                        SavingsAccount savingsAccount = (SavingsAccount) account;
-                        savingsAccount.setInterestRate(command.getInterestRate());
+                        final OutputSink output) {
+        AccountDirectory.Entry entry = accountDirectory.lookup(command.getAccount());
+        if (entry != null) {
+            Account account = entry.getAccount();
+            User user = entry.getFirstHolder();
+            if (account.getType().equals("savings")) {
+                SavingsAccount savingsAccount = (SavingsAccount) account;
+                savingsAccount.setInterestRate(command.getInterestRate());
 
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("Interest rate of the account changed to "
-                                        + command.getInterestRate())
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                account.getIBAN(), transaction);
-                        return;
-                    }
-                    ObjectNode commandNode = objectMapper.createObjectNode();
-                    commandNode.put("command", "changeInterestRate");
-                    commandNode.put("timestamp", command.getTimestamp());
-                    commandNode.putObject("output")
-                            .put("description", "This is not a savings account")
-                            .put("timestamp", command.getTimestamp());
-                    output.add(commandNode);
-                }
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.INTEREST_RATE_CHANGED,
+                                command.getInterestRate())
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
+            }
+            ObjectNode commandNode = objectMapper.createObjectNode();
+            commandNode.put("command", "changeInterestRate");
+            commandNode.put("timestamp", command.getTimestamp());
+            commandNode.putObject("output")
+                    .put("description", "This is not a savings account")
+                    .put("timestamp", command.getTimestamp());
+            // every holder of the account reports it, as when going through the users
+            for (int i = 0; i < entry.getHolderCount(); i++) {
+                output.add(commandNode);
             }
         }
     }
@@ -1,36 +1,34 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.BusinessAccount;
-import org.poo.banksystem.User;
 import org.poo.fileio.CommandInput;
-
-import java.util.List;
+import org.poo.fileio.OutputSink;
 
 public class ChangeSpendingLimit implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
 
     /**
      * Constructor for ChangeSpendingLimit.
-     * @param users the users
+     * @param accountDirectory the account directory
      */
-    public ChangeSpendingLimit(final List<User> users) {
-        this.users = users;
+    public ChangeSpendingLimit(final AccountDirectory accountDirectory) {
+        this.accountDirectory = accountDirectory;
     }
 
     /**
      * This method is used to change the spending limit of a business account.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        Account account = findAccountByIBAN(command.getAccount());
+                        final OutputSink output) {
+        Account account = accountDirectory.findAccount(command.getAccount());
         if (account == null) {
             ObjectNode commandNode = objectMapper.createObjectNode();
             commandNode.put("command", "changeSpendingLimit");
@@ -64,20 +62,4 @@ public class ChangeSpendingLimit implements Command {
         }
         businessAccount.setSpendingLimit(command.getAmount());
     }
-
-    /**
-     * This method is used to find an account by its IBAN.
-     * @param iban the IBAN of the account
-     * @return the account with the given IBAN
-     */
-    private Account findAccountByIBAN(final String iban) {
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(iban)) {
-                    return account;
-                }
-            }
-        }
-        return null;
-    }
 }
@@ -1,29 +1,29 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
 import org.poo.banksystem.Card;
+import org.poo.banksystem.CardRegistry;
 import org.poo.banksystem.User;
 import org.poo.transactions.TransactionManager;
 import org.poo.transactions.Transaction;
+import org.poo.transactions.TransactionType;
 import org.poo.fileio.CommandInput;
-
-import java.util.List;
+import org.poo.fileio.OutputSink;
 
 public class CheckCardStatus implements Command {
-    private final List<User> users;
+    private final CardRegistry cardRegistry;
     private final TransactionManager transactionManager;
     private final int minBalanceLimit = 30;
     /**
      * Constructor for CheckCardStatus.
-     * @param users the users
+     * @param cardRegistry the card registry
      * @param transactionManager the transaction manager
      */
-    public CheckCardStatus(final List<User> users,
+    public CheckCardStatus(final CardRegistry cardRegistry,
                            final TransactionManager transactionManager) {
-        this.users = users;
+        this.cardRegistry = cardRegistry;
         this.transactionManager = transactionManager;
     }
 
@@ -31,29 +31,13 @@ public class CheckCardStatus implements Command {
      * This method is used to check the status of a card.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        Card card = null;
-        Account account = null;
-        User user = null;
-
-        for (User userIter : users) {
-            for (Account accountIter : userIter.getAccounts()) {
-                for (Card cardIter : accountIter.getCards()) {
-                    if (cardIter.getCardNumber().equals(command.getCardNumber())) {
-                        card = cardIter;
-                        account = accountIter;
-                        user = userIter;
-                        break;
-                    }
-                }
-            }
-        }
-
-        if (card == null) {
+                        final OutputSink output) {
+        CardRegistry.Entry cardEntry = cardRegistry.lookup(command.getCardNumber());
+        if (cardEntry == null) {
             ObjectNode errorNode = objectMapper.createObjectNode();
             errorNode.put("command", "checkCardStatus");
             errorNode.put("timestamp", command.getTimestamp());
@@ -62,6 +46,9 @@ public class CheckCardStatus implements Command {
             output.add(errorNode);
             return;
         }
+        Card card = cardEntry.getCard();
+        Account account = cardEntry.getAccount();
+        User user = cardEntry.getHolder();
 
         Double balance = account.getBalance();
         Double minBalance = account.getMinBalance();
@@ -69,28 +56,27 @@ public class CheckCardStatus implements Command {
         if (balance == 0.0) {
             Transaction transaction = new Transaction.Builder()
                     .timestamp(command.getTimestamp())
-                    .description("You have reached the minimum amount of funds,"
-                            + " the card will be frozen")
+                    .type(TransactionType.MINIMUM_FUNDS_CARD_FROZEN)
                     .build();
-            transactionManager.addTransactionToUser(user.getEmail(), transaction);
+            transactionManager.addTransactionToUser(user, transaction);
             return;
         }
         if (balance <= minBalance) {
             card.changeStatus("frozen");
             Transaction transaction = new Transaction.Builder()
                     .timestamp(command.getTimestamp())
-                    .description("The card is frozen")
+                    .type(TransactionType.CARD_FROZEN)
                     .build();
-            transactionManager.addTransactionToUser(user.getEmail(), transaction);
+            transactionManager.addTransactionToUser(user, transaction);
             return;
         }
 
         if (balance - minBalance <= minBalanceLimit) {
             Transaction transaction = new Transaction.Builder()
                     .timestamp(command.getTimestamp())
-                    .description("You have reached the minimum amount of funds")
+                    .type(TransactionType.MINIMUM_FUNDS_REACHED)
                     .build();
-            transactionManager.addTransactionToUser(user.getEmail(), transaction);
+            transactionManager.addTransactionToUser(user, transaction);
         }
     }
 }
@@ -1,8 +1,8 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 
 /**
  * The Command interface is part of the Command design pattern.
@@ -17,7 +17,7 @@ public interface Command {
      * This method is used to execute a command.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
-    void execute(CommandInput command, ObjectMapper objectMapper, ArrayNode output);
+    void execute(CommandInput command, ObjectMapper objectMapper, OutputSink output);
 }
@@ -0,0 +1,89 @@
+package org.poo.commands;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The types of commands the bank can execute.
+ * <p>
+ * The name of a command is resolved to its type once, when the input is read,
+ * so the bank can dispatch each command without comparing strings. Each type
+ * also records whether its commands can change the state of the bank.
+ * </p>
+ */
+public enum CommandType {
+    PRINT_USERS("printUsers", false),
+    ADD_ACCOUNT("addAccount", true),
+    CREATE_CARD("createCard", true),
+    CREATE_ONE_TIME_CARD("createOneTimeCard", true),
+    ADD_FUNDS("addFunds", true),
+    DELETE_ACCOUNT("deleteAccount", true),
+    DELETE_CARD("deleteCard", true),
+    PAY_ONLINE("payOnline", true),
+    SEND_MONEY("sendMoney", true),
+    PRINT_TRANSACTIONS("printTransactions", false),
+    SET_MINIMUM_BALANCE("setMinimumBalance", true),
+    CHECK_CARD_STATUS("checkCardStatus", true),
+    SET_ALIAS("setAlias", true),
+    SPLIT_PAYMENT("splitPayment", true),
+    REPORT("report", false),
+    SPENDINGS_REPORT("spendingsReport", false),
+    ADD_INTEREST("addInterest", true),
+    CHANGE_INTEREST_RATE("changeInterestRate", true),
+    WITHDRAW_SAVINGS("withdrawSavings", true),
+    UPGRADE_PLAN("upgradePlan", true),
+    CASH_WITHDRAWAL("cashWithdrawal", true),
+    ACCEPT_SPLIT_PAYMENT("acceptSplitPayment", true),
+    REJECT_SPLIT_PAYMENT("rejectSplitPayment", true),
+    ADD_NEW_BUSINESS_ASSOCIATE("addNewBusinessAssociate", true),
+    CHANGE_DEPOSIT_LIMIT("changeDepositLimit", true),
+    CHANGE_SPENDING_LIMIT("changeSpendingLimit", true),
+    BUSINESS_REPORT("businessReport", false);
+
+    private static final Map<String, CommandType> BY_NAME = new HashMap<>();
+
+    static {
+        for (CommandType type : values()) {
+            BY_NAME.put(type.commandName, type);
+        }
+    }
+
+    private final String commandName;
+    private final boolean mutating;
+
+    CommandType(final String commandName, final boolean mutating) {
+        this.commandName = commandName;
+        this.mutating = mutating;
+    }
+
+    /**
+     * Getter for the name of the command, as it appears in the input.
+     *
+     * @return the name of the command
+     */
+    public String getCommandName() {
+        return commandName;
+    }
+
+    /**
+     * Checks if commands of this type can change the state of the bank.
+     *
+     * @return true if the command can change the state, false if it only reads it
+     */
+    public boolean isMutating() {
+        return mutating;
+    }
+
+    /**
+     * Resolves the name of a command to its type.
+     *
+     * @param commandName the name of the command
+     * @return the type, or null if there is no command with that name
+     */
+    public static CommandType fromName(final String commandName) {
+        if (commandName == null) {
+            return null;
+        }
+        return BY_NAME.get(commandName);
+    }
+}
@@ -1,62 +1,71 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.Card;
+import org.poo.banksystem.CardRegistry;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.transactions.Transaction;
-import org.poo.utils.Utils;
+import org.poo.transactions.TransactionType;
+import org.poo.utils.IdGenerator;
 import org.poo.transactions.TransactionManager;
 
-import java.util.List;
 
 public class CreateCard implements Command {
-    private List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
+    private final CardRegistry cardRegistry;
     private final TransactionManager transactionManager;
+    private final IdGenerator idGenerator;
 
     /**
      * Constructor for CreateCard.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
+     * @param cardRegistry the card registry
+     * @param idGenerator the generator of card numbers
      */
-    public CreateCard(final List<User> users,
-                      final TransactionManager transactionManager) {
-        this.users = users;
+    public CreateCard(final UserDirectory userDirectory, final AccountDirectory accountDirectory,
+                      final CardRegistry cardRegistry,
+                      final TransactionManager transactionManager,
+                      final IdGenerator idGenerator) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
+        this.cardRegistry = cardRegistry;
         this.transactionManager = transactionManager;
+        this.idGenerator = idGenerator;
     }
 
     /**
      * This method is used to create a card.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                for (Account account : user.getAccounts()) {
-                    if (account.getIBAN().equals(command.getAccount())) {
-                        String cardNumber = Utils.generateCardNumber();
-                        Card card = new Card(cardNumber, "active");
-                        account.addCard(card);
+                        final OutputSink output) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            Account account = accountDirectory.findAccountHeldBy(command.getAccount(), user);
+            if (account != null) {
+                String cardNumber = idGenerator.nextCardNumber();
+                Card card = new Card(cardNumber, "active");
+                account.addCard(card);
+                cardRegistry.register(card, account, user);
 
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("New card created")
-                                .card(cardNumber)
-                                .cardHolder(user.getEmail())
-                                .account(account.getIBAN())
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                account.getIBAN(), transaction);
-                        break;
-                    }
-                }
-                break;
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.CARD_CREATED)
+                        .card(cardNumber)
+                        .cardHolder(user.getEmail())
+                        .account(account.getIBAN())
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
             }
         }
     }
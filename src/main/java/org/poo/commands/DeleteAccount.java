@@ -1,28 +1,39 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.BusinessAccount;
+import org.poo.banksystem.CardRegistry;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
+import org.poo.transactions.TransactionType;
 
-import java.util.List;
 
 public class DeleteAccount implements Command {
-    private List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
+    private final CardRegistry cardRegistry;
     private final TransactionManager transactionManager;
 
     /**
      * Constructor for DeleteAccount.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
+     * @param cardRegistry the card registry
+     * @param transactionManager the transaction manager
      */
-    public DeleteAccount(final List<User> users,
+    public DeleteAccount(final UserDirectory userDirectory, final AccountDirectory accountDirectory,
+                         final CardRegistry cardRegistry,
                          final TransactionManager transactionManager) {
-        this.users = users;
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
+        this.cardRegistry = cardRegistry;
         this.transactionManager = transactionManager;
     }
 
@@ -30,50 +41,47 @@ public class DeleteAccount implements Command {
      * This method is used to delete an account.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                for (Account account : user.getAccounts()) {
-                    if (account.getIBAN().equals(command.getAccount())) {
-                        if (account.getType().equals("business")) {
-                            BusinessAccount businessAccount = (BusinessAccount) account;
-                            if (!businessAccount.getOwner().equals(user)) {
-                                ObjectNode commandNode = objectMapper.createObjectNode();
-                                commandNode.put("command", "deleteAccount");
-                                commandNode.put("timestamp", command.getTimestamp());
-                                commandNode.putObject("output")
-                                        .put("error",
-                                                "You must be owner in order to delete account")
-                                        .put("timestamp", command.getTimestamp());
-                                output.add(commandNode);
-                                return;
-                            }
-                        }
-                        if (account.getBalance() == 0.0) {
-                            user.getAccounts().remove(account);
-                            ObjectNode commandNode = objectMapper.createObjectNode();
-                            commandNode.put("command", "deleteAccount");
-                            commandNode.put("timestamp", command.getTimestamp());
-                            commandNode.putObject("output")
-                                    .put("success", "Account deleted")
-                                    .put("timestamp", command.getTimestamp());
-                            output.add(commandNode);
-                            return;
-                        }
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("Account couldn't be deleted - "
-                                        + "there are funds remaining")
-                                .build();
-                        transactionManager.addTransactionToUser(command.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(command.getEmail(),
-                                account.getIBAN(), transaction);
+                        final OutputSink output) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            Account account = accountDirectory.findAccountHeldBy(command.getAccount(), user);
+            if (account != null) {
+                if (account.getType().equals("business")) {
+                    BusinessAccount businessAccount = (BusinessAccount) account;
+                    if (!businessAccount.getOwner().equals(user)) {
+                        ObjectNode commandNode = objectMapper.createObjectNode();
+                        commandNode.put("command", "deleteAccount");
+                        commandNode.put("timestamp", command.getTimestamp());
+                        commandNode.putObject("output")
+                                .put("error",
+                                        "You must be owner in order to delete account")
+                                .put("timestamp", command.getTimestamp());
+                        output.add(commandNode);
+                        return;
                     }
                 }
+                if (account.getBalance() == 0.0) {
+                    user.getAccounts().remove(account);
+                    accountDirectory.unregister(account.getIBAN());
+                    cardRegistry.unregisterAll(account);
+                    ObjectNode commandNode = objectMapper.createObjectNode();
+                    commandNode.put("command", "deleteAccount");
+                    commandNode.put("timestamp", command.getTimestamp());
+                    commandNode.putObject("output")
+                            .put("success", "Account deleted")
+                            .put("timestamp", command.getTimestamp());
+                    output.add(commandNode);
+                    return;
+                }
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.ACCOUNT_NOT_DELETED)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
             }
         }
         ObjectNode commandNode = objectMapper.createObjectNode();
@@ -1,26 +1,36 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.Card;
+import org.poo.banksystem.CardRegistry;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
-
-import java.util.List;
+import org.poo.transactions.TransactionType;
 
 public class DeleteCard implements Command {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
+    private final CardRegistry cardRegistry;
     private final TransactionManager transactionManager;
 
     /**
      * Constructor for DeleteCard.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
+     * @param cardRegistry the card registry
      */
-    public DeleteCard(final List<User> users, final TransactionManager transactionManager) {
-        this.users = users;
+    public DeleteCard(final UserDirectory userDirectory, final AccountDirectory accountDirectory,
+                      final CardRegistry cardRegistry,
+                      final TransactionManager transactionManager) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
+        this.cardRegistry = cardRegistry;
         this.transactionManager = transactionManager;
     }
 
@@ -28,33 +38,30 @@ public class DeleteCard implements Command {
      * This method is used to delete a card.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                for (Account account : user.getAccounts()) {
-                    for (Card card : account.getCards()) {
-                        if (card.getCardNumber().equals(command.getCardNumber())) {
-                            account.deleteCard(card.getCardNumber());
+                        final OutputSink output) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            CardRegistry.Entry cardEntry = cardRegistry.lookup(command.getCardNumber());
+            if (cardEntry != null
+                    && accountDirectory.isHeldBy(cardEntry.getAccount(), user)) {
+                Account account = cardEntry.getAccount();
+                Card card = cardEntry.getCard();
+                account.deleteCard(card.getCardNumber());
+                cardRegistry.unregister(card.getCardNumber());
 
-                            Transaction transaction = new Transaction.Builder()
-                                    .timestamp(command.getTimestamp())
-                                    .description("The card has been destroyed")
-                                    .account(account.getIBAN())
-                                    .card(card.getCardNumber())
-                                    .cardHolder(command.getEmail())
-                                    .build();
-                            transactionManager.addTransactionToUser(command.getEmail(),
-                                    transaction);
-                            transactionManager.addTransactionToAccount(command.getEmail(),
-                                    account.getIBAN(), transaction);
-                            return;
-                        }
-                    }
-                }
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.CARD_DESTROYED)
+                        .account(account.getIBAN())
+                        .card(card.getCardNumber())
+                        .cardHolder(command.getEmail())
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
             }
         }
     }
@@ -1,291 +1,250 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.BusinessAccount;
 import org.poo.banksystem.Card;
+import org.poo.banksystem.CardRegistry;
 import org.poo.banksystem.Commerciant;
 import org.poo.banksystem.ExchangeRateManager;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
-import org.poo.utils.Utils;
+import org.poo.transactions.TransactionType;
+import org.poo.utils.IdGenerator;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class PayOnline implements Command {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
+    private final CardRegistry cardRegistry;
     private List<Commerciant> commerciants;
     private final ExchangeRateManager exchangeRateManager;
     private final TransactionManager transactionManager;
+    private final IdGenerator idGenerator;
     public static final double SILVER_AMOUNT_THRESHOLD = 300;
     public static final double SILVER_TRANSACTION_THRESHOLD = 5;
 
 
     /**
      * Constructor for PayOnline.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
+     * @param cardRegistry the card registry
      * @param commerciants the commerciants
      * @param exchangeRateManager the exchange rate manager
      * @param transactionManager the transaction manager
+     * @param idGenerator the generator of card numbers
      */
-    public PayOnline(final List<User> users,
+    public PayOnline(final UserDirectory userDirectory,
+                     final AccountDirectory accountDirectory,
+                     final CardRegistry cardRegistry,
                      final List<Commerciant> commerciants,
                      final ExchangeRateManager exchangeRateManager,
-                     final TransactionManager transactionManager) {
-        this.users = users;
+                     final TransactionManager transactionManager,
+                     final IdGenerator idGenerator) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
+        this.cardRegistry = cardRegistry;
         this.commerciants = commerciants;
         this.exchangeRateManager = exchangeRateManager;
         this.transactionManager = transactionManager;
+        this.idGenerator = idGenerator;
     }
 
     /**
      * This method is used to handle online payments.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
+                        final OutputSink output) {
         if (command.getAmount() == 0) {
             return;
         }
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                for (Account account : user.getAccounts()) {
-                    for (Card card : account.getCards()) {
-                        if (card.getCardNumber().equals(command.getCardNumber())) {
-                            if (account.getType().equals("business")) {
-                                double amountInRon = exchangeRateManager.convert(
-                                        command.getAmount(), command.getCurrency(), "RON");
-                                double amountInAccountCurrency = exchangeRateManager.convert(
-                                        command.getAmount(), command.getCurrency(),
-                                        account.getCurrency());
-                                double totalAmount = amountInAccountCurrency
-                                        + account.getTransactionFee(amountInRon,
-                                        amountInAccountCurrency);
-                                if (account.getBalance() >=  totalAmount
-                                        && account.getBalance() - totalAmount
-                                        >= account.getMinBalance()) {
-                                    BusinessAccount businessAccount = (BusinessAccount) account;
-                                    Commerciant commerciant = findCommerciantByName(command
-                                            .getCommerciant());
-                                    if (commerciant == null) {
-                                        return;
-                                    }
-                                    if (businessAccount.getEmployees().contains(user)) {
-                                        if (businessAccount.getSpendingLimit() < totalAmount) {
-                                            return;
-                                        }
-                                        double spentAmount = businessAccount.getEmployeeSpendings()
-                                                .getOrDefault(user, 0.0);
-                                        businessAccount.getEmployeeSpendings().put(user,
-                                                spentAmount + amountInAccountCurrency);
-
-                                        double paymentToCommerciant = businessAccount
-                                                .getCommerciantPayments()
-                                                .getOrDefault(commerciant, 0.0);
-                                        businessAccount.getCommerciantPayments().put(commerciant,
-                                                paymentToCommerciant + amountInAccountCurrency);
-
-                                        if (businessAccount.getCommerciantEmployees()
-                                                .get(commerciant) == null) {
-                                            List<User> employees = new ArrayList<>();
-                                            employees.add(user);
-                                            businessAccount.getCommerciantEmployees()
-                                                    .put(commerciant, employees);
-                                        } else {
-                                            businessAccount.getCommerciantEmployees()
-                                                    .get(commerciant).add(user);
-                                        }
-                                    }
-                                    if (businessAccount.getManagers().contains(user)) {
-                                        double spentAmount = businessAccount.getManagerSpendings()
-                                                .getOrDefault(user, 0.0);
-                                        businessAccount.getManagerSpendings().put(user,
-                                                spentAmount + amountInAccountCurrency);
-
-                                        double paymentToCommerciant = businessAccount
-                                                .getCommerciantPayments()
-                                                .getOrDefault(commerciant, 0.0);
-                                        businessAccount.getCommerciantPayments().put(commerciant,
-                                                paymentToCommerciant + amountInAccountCurrency);
-
-                                        if (businessAccount.getCommerciantManagers()
-                                                .get(commerciant) == null) {
-                                            List<User> managers = new ArrayList<>();
-                                            managers.add(user);
-                                            businessAccount.getCommerciantManagers()
-                                                    .put(commerciant, managers);
-                                        } else {
-                                            businessAccount.getCommerciantManagers()
-                                                    .get(commerciant).add(user);
-                                        }
-                                    }
-                                    account.pay(totalAmount);
-                                    if (account.hasDiscount(commerciant.getType())) {
-                                        double discount = account.getDiscount(commerciant.getType())
-                                                * amountInAccountCurrency;
-                                        account.addFunds(discount);
-                                        account.getDiscounts().remove(commerciant.getType());
-                                    }
-                                    double cashback = account
-                                            .processTransactionStrategy(amountInAccountCurrency,
-                                                    amountInRon, commerciant);
-                                    if (cashback > 0) {
-                                        account.addFunds(cashback);
-                                    }
-                                    return;
-                                }
-                                return;
-                            }
-                            double amountInRon = exchangeRateManager.convert(
-                                    command.getAmount(), command.getCurrency(), "RON");
-                            double amountInAccountCurrency = exchangeRateManager.convert(
-                                    command.getAmount(), command.getCurrency(),
-                                    account.getCurrency());
-                            double totalAmount = amountInAccountCurrency
-                                    + account.getTransactionFee(amountInRon,
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            CardRegistry.Entry cardEntry = cardRegistry.lookup(command.getCardNumber());
+            if (cardEntry != null
+                    && accountDirectory.isHeldBy(cardEntry.getAccount(), user)) {
+                Account account = cardEntry.getAccount();
+                Card card = cardEntry.getCard();
+                if (account.getType().equals("business")) {
+                    int currencyId = exchangeRateManager.getCurrencyId(command.getCurrency());
+                    double amountInRon = exchangeRateManager.convert(
+                            command.getAmount(), currencyId, exchangeRateManager.getRonId());
+                    double amountInAccountCurrency = exchangeRateManager.convert(
+                            command.getAmount(), currencyId, account.getCurrencyId());
+                    double totalAmount = amountInAccountCurrency
+                            + account.getTransactionFee(amountInRon,
+                            amountInAccountCurrency);
+                    BusinessAccount businessAccount = (BusinessAccount) account;
+                    Commerciant commerciant = findCommerciantByName(command
+                            .getCommerciant());
+                    if (commerciant == null) {
+                        return;
+                    }
+                    if (businessAccount.getEmployees().contains(user)
+                            && businessAccount.getSpendingLimit() < totalAmount) {
+                        return;
+                    }
+                    if (account.tryPay(totalAmount)) {
+                        if (businessAccount.getEmployees().contains(user)) {
+                            businessAccount.getEmployeeSpendings().add(user,
+                                    command.getTimestamp(), amountInAccountCurrency);
+                            businessAccount.getCommerciantPayments().record(commerciant,
+                                    user, false, command.getTimestamp(),
                                     amountInAccountCurrency);
-                            if (account.getBalance() >=  totalAmount && card.isActive()
-                                    && account.getBalance() - totalAmount
-                                    >= account.getMinBalance()) {
-                                account.pay(totalAmount);
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("Card payment")
-                                        .amount(String.valueOf(amountInAccountCurrency))
-                                        .commerciant(command.getCommerciant())
-                                        .build();
-                                transactionManager.addTransactionToUser(command.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(command.getEmail(),
-                                        account.getIBAN(), transaction);
-
-                                Commerciant commerciant = findCommerciantByName(command
-                                        .getCommerciant());
-                                if (commerciant == null) {
-                                    return;
-                                }
-                                if (account.hasDiscount(commerciant.getType())) {
-                                    double discount = account.getDiscount(commerciant.getType())
-                                            * amountInAccountCurrency;
-                                    account.addFunds(discount);
-                                    account.getDiscounts().remove(commerciant.getType());
-                                }
-                                double cashback = account
-                                        .processTransactionStrategy(amountInAccountCurrency,
+                        }
+                        if (businessAccount.getManagers().contains(user)) {
+                            businessAccount.getManagerSpendings().add(user,
+                                    command.getTimestamp(), amountInAccountCurrency);
+                            businessAccount.getCommerciantPayments().record(commerciant,
+                                    user, true, command.getTimestamp(),
+                                    amountInAccountCurrency);
+                        }
+                        if (account.hasDiscount(commerciant.getType())) {
+                            double discount = account.getDiscount(commerciant.getType())
+                                    * amountInAccountCurrency;
+                            account.addFunds(discount);
+                            account.getDiscounts().remove(commerciant.getType());
+                        }
+                        double cashback = account
+                                .processTransactionStrategy(amountInAccountCurrency,
                                         amountInRon, commerciant);
-                                if (cashback > 0) {
-                                    account.addFunds(cashback);
-                                }
+                        if (cashback > 0) {
+                            account.addFunds(cashback);
+                        }
+                        return;
+                    }
+                    return;
+                }
+                int currencyId = exchangeRateManager.getCurrencyId(command.getCurrency());
+                double amountInRon = exchangeRateManager.convert(
+                        command.getAmount(), currencyId, exchangeRateManager.getRonId());
+                double amountInAccountCurrency = exchangeRateManager.convert(
+                        command.getAmount(), currencyId, account.getCurrencyId());
+                double totalAmount = amountInAccountCurrency
+                        + account.getTransactionFee(amountInRon,
+                        amountInAccountCurrency);
+                if (card.isActive() && account.tryPay(totalAmount)) {
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.CARD_PAYMENT)
+                            .amount(amountInAccountCurrency)
+                            .commerciant(command.getCommerciant())
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
 
-                                if (user.getPlanType().equals("silver")
-                                        && amountInRon >= SILVER_AMOUNT_THRESHOLD) {
-                                    user.incrementSilverTransactions();
-                                    if (user.getSilverTransactions()
-                                            == SILVER_TRANSACTION_THRESHOLD) {
-                                        user.setPlanTypeForAllAccounts("gold");
-                                        Transaction transactionUpgrade = new Transaction.Builder()
-                                                .timestamp(command.getTimestamp())
-                                                .description("Upgrade plan")
-                                                .accountIBAN(account.getIBAN())
-                                                .newPlanType("gold")
-                                                .build();
-                                        transactionManager.addTransactionToUser(user.getEmail(),
-                                                transactionUpgrade);
-                                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                                account.getIBAN(), transaction);
-                                    }
-                                }
-                                if (card.isOneTime()) {
-                                    transaction = new Transaction.Builder()
-                                            .timestamp(command.getTimestamp())
-                                            .description("The card has been destroyed")
-                                            .card(card.getCardNumber())
-                                            .cardHolder(user.getEmail())
-                                            .account(account.getIBAN())
-                                            .build();
-                                    transactionManager.addTransactionToUser(user.getEmail(),
-                                            transaction);
-                                    transactionManager.addTransactionToAccount(command.getEmail(),
-                                            account.getIBAN(), transaction);
+                    Commerciant commerciant = findCommerciantByName(command
+                            .getCommerciant());
+                    if (commerciant == null) {
+                        return;
+                    }
+                    if (account.hasDiscount(commerciant.getType())) {
+                        double discount = account.getDiscount(commerciant.getType())
+                                * amountInAccountCurrency;
+                        account.addFunds(discount);
+                        account.getDiscounts().remove(commerciant.getType());
+                    }
+                    double cashback = account
+                            .processTransactionStrategy(amountInAccountCurrency,
+                            amountInRon, commerciant);
+                    if (cashback > 0) {
+                        account.addFunds(cashback);
+                    }
 
-                                    account.deleteCard(card.getCardNumber());
-                                    String newCardNumber = Utils.generateCardNumber();
-                                    Card newCard = new Card(newCardNumber, "active");
-                                    newCard.setOneTime(true);
-                                    account.addCard(newCard);
+                    if (user.getPlanType().equals("silver")
+                            && amountInRon >= SILVER_AMOUNT_THRESHOLD) {
+                        user.incrementSilverTransactions();
+                        if (user.getSilverTransactions()
+                                == SILVER_TRANSACTION_THRESHOLD) {
+                            user.setPlanTypeForAllAccounts("gold");
+                            Transaction transactionUpgrade = new Transaction.Builder()
+                                    .timestamp(command.getTimestamp())
+                                    .type(TransactionType.UPGRADE_PLAN)
+                                    .accountIBAN(account.getIBAN())
+                                    .newPlanType("gold")
+                                    .build();
+                            transactionManager.addTransactionToUser(user, transactionUpgrade);
+                            transactionManager.addTransactionToAccount(account, transaction);
+                        }
+                    }
+                    if (card.isOneTime()) {
+                        transaction = new Transaction.Builder()
+                                .timestamp(command.getTimestamp())
+                                .type(TransactionType.CARD_DESTROYED)
+                                .card(card.getCardNumber())
+                                .cardHolder(user.getEmail())
+                                .account(account.getIBAN())
+                                .build();
+                        transactionManager.addTransaction(user, account, transaction);
 
-                                    transaction = new Transaction.Builder()
-                                            .timestamp(command.getTimestamp())
-                                            .description("New card created")
-                                            .card(newCardNumber)
-                                            .cardHolder(user.getEmail())
-                                            .account(account.getIBAN())
-                                            .build();
-                                    transactionManager.addTransactionToUser(user.getEmail(),
-                                            transaction);
-                                    transactionManager.addTransactionToAccount(command.getEmail(),
-                                            account.getIBAN(), transaction);
-                                }
-                                return;
-                            }
+                        account.deleteCard(card.getCardNumber());
+                        cardRegistry.unregister(card.getCardNumber());
+                        String newCardNumber = idGenerator.nextCardNumber();
+                        Card newCard = new Card(newCardNumber, "active");
+                        newCard.setOneTime(true);
+                        account.addCard(newCard);
+                        cardRegistry.register(newCard, account, user);
 
-                            if (!card.isActive()) {
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("The card is frozen")
-                                        .build();
-                                transactionManager.addTransactionToUser(command.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(command.getEmail(),
-                                        account.getIBAN(), transaction);
-                                return;
-                            }
+                        transaction = new Transaction.Builder()
+                                .timestamp(command.getTimestamp())
+                                .type(TransactionType.CARD_CREATED)
+                                .card(newCardNumber)
+                                .cardHolder(user.getEmail())
+                                .account(account.getIBAN())
+                                .build();
+                        transactionManager.addTransaction(user, account, transaction);
+                    }
+                    return;
+                }
 
-                            if (account.getBalance() < amountInAccountCurrency) {
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("Insufficient funds")
-                                        .build();
-                                transactionManager.addTransactionToUser(command.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(command.getEmail(),
-                                        account.getIBAN(), transaction);
-                                return;
-                            }
+                if (!card.isActive()) {
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.CARD_FROZEN)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
+                    return;
+                }
 
-                            if (account.getBalance() - amountInAccountCurrency
-                                    < account.getMinBalance()) {
-                                card.changeStatus("frozen");
-                                Transaction transaction = new Transaction.Builder()
-                                        .timestamp(command.getTimestamp())
-                                        .description("The card is frozen")
-                                        .build();
-                                transactionManager.addTransactionToUser(command.getEmail(),
-                                        transaction);
-                                transactionManager.addTransactionToAccount(command.getEmail(),
-                                        account.getIBAN(), transaction);
-                                return;
-                            }
-                        }
-                    }
+                if (account.getBalance() < amountInAccountCurrency) {
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.INSUFFICIENT_FUNDS)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
+                    return;
+                }
+
+                if (account.getBalance() - amountInAccountCurrency
+                        < account.getMinBalance()) {
+                    card.changeStatus("frozen");
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(command.getTimestamp())
+                            .type(TransactionType.CARD_FROZEN)
+                            .build();
+                    transactionManager.addTransaction(user, account, transaction);
+                    return;
                 }
-                ObjectNode commandNode = objectMapper.createObjectNode();
-                commandNode.put("command", "payOnline");
-                commandNode.put("timestamp", command.getTimestamp());
-                commandNode.putObject("output").put("description",
-                                "Card not found")
-                                .put("timestamp", command.getTimestamp());
-                output.add(commandNode);
-                return;
             }
+            ObjectNode commandNode = objectMapper.createObjectNode();
+            commandNode.put("command", "payOnline");
+            commandNode.put("timestamp", command.getTimestamp());
+            commandNode.putObject("output").put("description",
+                            "Card not found")
+                            .put("timestamp", command.getTimestamp());
+            output.add(commandNode);
+            return;
         }
     }
 
@@ -4,44 +4,41 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
-import org.poo.transactions.Transaction;
-
-import java.util.Comparator;
-import java.util.List;
+import org.poo.fileio.OutputSink;
+import org.poo.transactions.TransactionLedger;
 
 public class PrintTransactions implements Command {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
 
     /**
      * Constructor for PrintTransactions.
-     * @param users the users
+     * @param userDirectory the user directory
      */
-    public PrintTransactions(final List<User> users) {
-        this.users = users;
+    public PrintTransactions(final UserDirectory userDirectory) {
+        this.userDirectory = userDirectory;
     }
 
     /**
      * This method is used to print the transactions of a user.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
+                        final OutputSink output) {
         ObjectNode commandNode = objectMapper.createObjectNode();
         commandNode.put("command", "printTransactions");
         commandNode.put("timestamp", command.getTimestamp());
 
         ArrayNode transactionsArray = commandNode.putArray("output");
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                user.getTransactions().stream()
-                        .sorted(Comparator.comparingInt(Transaction::getTimestamp))
-                        .forEach(transaction -> transactionsArray
-                                .add(transaction.toJson(objectMapper)));
-                break;
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            TransactionLedger transactions = user.getTransactions();
+            for (int row : transactions.rowsByTimestamp()) {
+                transactionsArray.add(transactions.get(row).toJson(objectMapper));
             }
         }
         output.add(commandNode);
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.BusinessAccount;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.banksystem.Account;
 import org.poo.banksystem.Card;
 import org.poo.banksystem.User;
@@ -27,11 +28,11 @@ public class PrintUsers implements Command {
      * This method is used to print the users.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
+                        final OutputSink output) {
         ObjectNode commandNode = objectMapper.createObjectNode();
         commandNode.put("command", "printUsers");
         commandNode.put("timestamp", command.getTimestamp());
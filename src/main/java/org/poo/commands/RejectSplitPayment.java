@@ -1,100 +1,104 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
+import org.poo.transactions.TransactionType;
 
 import java.util.List;
-
-import static org.poo.commands.SplitPayment.splitPayments;
+import java.util.Map;
 
 public class RejectSplitPayment implements Command {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
     private final TransactionManager transactionManager;
+    private final Map<Integer, SplitPaymentData> splitPayments;
 
     /**
      * Constructor for RejectSplitPayment.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory
      * @param transactionManager the transaction manager
+     * @param splitPayments the pending split payments of the bank, by timestamp
      */
-    public RejectSplitPayment(final List<User> users, final TransactionManager transactionManager) {
-        this.users = users;
+    public RejectSplitPayment(final UserDirectory userDirectory,
+                              final AccountDirectory accountDirectory,
+                              final TransactionManager transactionManager,
+                              final Map<Integer, SplitPaymentData> splitPayments) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
         this.transactionManager = transactionManager;
+        this.splitPayments = splitPayments;
     }
 
     /**
      * This method is used to reject a split payment.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                int timestamp = user.rejectFirstPendingSplitPayment();
-                if (timestamp == -1) {
-                    return;
-                }
-                SplitPaymentData splitPaymentData = splitPayments.get(timestamp);
-                List<Account> accounts = splitPaymentData.getAccounts();
-                String type = splitPaymentData.getType();
+                        final OutputSink output) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            int timestamp = user.rejectFirstPendingSplitPayment();
+            if (timestamp == -1) {
+                return;
+            }
+            SplitPaymentData splitPaymentData = splitPayments.get(timestamp);
+            List<Account> accounts = splitPaymentData.getAccounts();
+            String type = splitPaymentData.getType();
 
-                if (type.equals("equal")) {
-                    for (Account account : accounts) {
-                        User associatedUser = findUserByAccount(account);
-                        if (associatedUser == null) {
-                            return;
-                        }
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(timestamp)
-                                .description(String.format("Split payment of %.2f %s",
-                                        splitPaymentData.getAmount(),
-                                        splitPaymentData.getCurrency()))
-                                .splitPaymentType("equal")
-                                .amount(String.valueOf(splitPaymentData.getAmount()
-                                            / accounts.size()))
-                                .currency(splitPaymentData.getCurrency())
-                                .involvedAccounts(splitPaymentData.getAccountsIbans())
-                                .error("One user rejected the payment.")
-                                .build();
-                        transactionManager.addTransactionToUser(associatedUser.getEmail(),
-                                transaction);
-                        transactionManager.addTransactionToAccount(associatedUser.getEmail(),
-                                account.getIBAN(), transaction);
-                    }
-                    return;
-                } else if (type.equals("custom")) {
-                    for (Account account : accounts) {
-                        User associatedUser = findUserByAccount(account);
-                        if (associatedUser == null) {
-                            return;
-                        }
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(timestamp)
-                                .description(String.format("Split payment of %.2f %s",
-                                        splitPaymentData.getAmount(),
-                                        splitPaymentData.getCurrency()))
-                                .splitPaymentType("custom")
-                                .amountForUsers(splitPaymentData.getAmountForUsers())
-                                .currency(splitPaymentData.getCurrency())
-                                .involvedAccounts(splitPaymentData.getAccountsIbans())
-                                .error("One user rejected the payment.")
-                                .build();
-                        transactionManager.addTransactionToUser(associatedUser.getEmail(),
-                                transaction);
-                        transactionManager.addTransactionToAccount(associatedUser.getEmail(),
-                                account.getIBAN(), transaction);
+            if (type.equals("equal")) {
+                for (Account account : accounts) {
+                    User associatedUser = findUserByAccount(account);
+                    if (associatedUser == null) {
+                        return;
                     }
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(timestamp)
+                            .type(TransactionType.SPLIT_PAYMENT,
+                                    splitPaymentData.getAmount(),
+                                    splitPaymentData.getCurrency())
+                            .splitPaymentType("equal")
+                            .amount(splitPaymentData.getAmount()
+                                        / accounts.size())
+                            .currency(splitPaymentData.getCurrency())
+                            .involvedAccounts(splitPaymentData.getAccountsIbans())
+                            .error("One user rejected the payment.")
+                            .build();
+                    transactionManager.addTransaction(associatedUser, account, transaction);
                 }
                 return;
+            } else if (type.equals("custom")) {
+                for (Account account : accounts) {
+                    User associatedUser = findUserByAccount(account);
+                    if (associatedUser == null) {
+                        return;
+                    }
+                    Transaction transaction = new Transaction.Builder()
+                            .timestamp(timestamp)
+                            .type(TransactionType.SPLIT_PAYMENT,
+                                    splitPaymentData.getAmount(),
+                                    splitPaymentData.getCurrency())
+                            .splitPaymentType("custom")
+                            .amountForUsers(splitPaymentData.getAmountForUsers())
+                            .currency(splitPaymentData.getCurrency())
+                            .involvedAccounts(splitPaymentData.getAccountsIbans())
+                            .error("One user rejected the payment.")
+                            .build();
+                    transactionManager.addTransaction(associatedUser, account, transaction);
+                }
             }
+            return;
         }
 
         ObjectNode commandNode = objectMapper.createObjectNode();
@@ -112,13 +116,6 @@ public class RejectSplitPayment implements Command {
      * @return the user
      */
     private User findUserByAccount(final Account account) {
-        for (User user : users) {
-            for (Account userAccount : user.getAccounts()) {
-                if (userAccount.equals(account)) {
-                    return user;
-                }
-            }
-        }
-        return null;
+        return accountDirectory.findFirstHolder(account.getIBAN());
     }
 }
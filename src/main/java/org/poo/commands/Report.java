@@ -4,59 +4,53 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
-import org.poo.banksystem.User;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.fileio.CommandInput;
-import org.poo.transactions.Transaction;
-
-import java.util.List;
+import org.poo.fileio.OutputSink;
+import org.poo.transactions.TransactionLedger;
 
 public class Report implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
 
     /**
      * Constructor for Report.
-     * @param users the users
+     * @param accountDirectory the account directory
      */
-    public Report(final List<User> users) {
-        this.users = users;
+    public Report(final AccountDirectory accountDirectory) {
+        this.accountDirectory = accountDirectory;
     }
 
     /**
      * This method is used to generate a report for a given account between two timestamps.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
+                        final OutputSink output) {
         String accountIBAN = command.getAccount();
         int startTimestamp = command.getStartTimestamp();
         int endTimestamp = command.getEndTimestamp();
 
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(accountIBAN)) {
-                    ObjectNode reportNode = objectMapper.createObjectNode();
-                    reportNode.put("command", "report");
-                    reportNode.put("timestamp", command.getTimestamp());
-
-                    ObjectNode outputNode = reportNode.putObject("output");
-                    outputNode.put("IBAN", account.getIBAN());
-                    outputNode.put("balance", account.getBalance());
-                    outputNode.put("currency", account.getCurrency());
-
-                    ArrayNode transactionsArray = outputNode.putArray("transactions");
-                    for (Transaction transaction : account.getTransactions()) {
-                        if (transaction.getTimestamp() >= startTimestamp
-                                && transaction.getTimestamp() <= endTimestamp) {
-                            transactionsArray.add(transaction.toJson(objectMapper));
-                        }
-                    }
-                    output.add(reportNode);
-                    return;
-                }
+        Account account = accountDirectory.findAccount(accountIBAN);
+        if (account != null) {
+            ObjectNode reportNode = objectMapper.createObjectNode();
+            reportNode.put("command", "report");
+            reportNode.put("timestamp", command.getTimestamp());
+
+            ObjectNode outputNode = reportNode.putObject("output");
+            outputNode.put("IBAN", account.getIBAN());
+            outputNode.put("balance", account.getBalance());
+            outputNode.put("currency", account.getCurrency());
+
+            ArrayNode transactionsArray = outputNode.putArray("transactions");
+            TransactionLedger transactions = account.getTransactions();
+            for (int row : transactions.rowsBetween(startTimestamp, endTimestamp)) {
+                transactionsArray.add(transactions.get(row).toJson(objectMapper));
             }
+            output.add(reportNode);
+            return;
         }
         ObjectNode errorNode = objectMapper.createObjectNode();
         errorNode.put("command", "report");
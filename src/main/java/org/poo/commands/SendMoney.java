@@ -1,76 +1,88 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
+import org.poo.banksystem.AccountLocks;
 import org.poo.banksystem.BusinessAccount;
 import org.poo.banksystem.Commerciant;
 import org.poo.banksystem.User;
 import org.poo.banksystem.ExchangeRateManager;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
+import org.poo.transactions.TransactionType;
 
 import java.util.List;
 
 public class SendMoney implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
     private List<Commerciant> commerciants;
     private final ExchangeRateManager exchangeRateManager;
     private final TransactionManager transactionManager;
+    private final AccountLocks accountLocks;
 
     /**
      * Constructor for SendMoney.
-     * @param users the users
+     * @param accountDirectory the account directory
      * @param commerciants the commerciants
      * @param exchangeRateManager the exchange rate manager
      * @param transactionManager the transaction manager
+     * @param accountLocks the account locks
      */
-    public SendMoney(final List<User> users,
+    public SendMoney(final AccountDirectory accountDirectory,
                      final List<Commerciant> commerciants,
                      final ExchangeRateManager exchangeRateManager,
-                     final TransactionManager transactionManager) {
-        this.users = users;
+                     final TransactionManager transactionManager,
+                     final AccountLocks accountLocks) {
+        this.accountDirectory = accountDirectory;
         this.commerciants = commerciants;
         this.exchangeRateManager = exchangeRateManager;
         this.transactionManager = transactionManager;
+        this.accountLocks = accountLocks;
     }
 
     /**
-     * This method is used to handle money transfers between accounts.
+     * This method is used to handle money transfers between accounts, holding
+     * the locks of the sender and the receiver.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        Account senderAccount = null;
-        Account receiverAccount = null;
-        User sender = null;
-        User receiver = null;
+                        final OutputSink output) {
+        AccountLocks.Held held = accountLocks.lock(command.getAccount(),
+                accountDirectory.resolveAlias(command.getReceiver()));
+        try {
+            transfer(command, objectMapper, output);
+        } finally {
+            held.close();
+        }
+    }
 
-        String receiverIBAN = command.getReceiver();
+    /**
+     * This method is used to transfer the money.
+     * @param command the command to be executed
+     * @param objectMapper the object mapper
+     * @param output the output sink
+     */
+    private void transfer(final CommandInput command, final ObjectMapper objectMapper,
+                          final OutputSink output) {
+        AccountDirectory.Entry senderEntry = accountDirectory.lookup(command.getAccount());
+        User sender = senderEntry == null ? null : senderEntry.findHolder(command.getEmail());
+        Account senderAccount = sender == null ? null : senderEntry.getAccount();
 
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                sender = user;
-                for (Account account : user.getAccounts()) {
-                    if (account.getIBAN().equals(command.getAccount())) {
-                        senderAccount = account;
-                    }
-                }
-            }
-            if (user.getAccountByAlias(receiverIBAN) != null) {
-                receiverIBAN = user.getAccountByAlias(receiverIBAN);
-            }
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(receiverIBAN)) {
-                    receiverAccount = account;
-                    receiver = user;
-                }
-            }
+        String receiverIBAN = accountDirectory.resolveAlias(command.getReceiver());
+        Account receiverAccount = null;
+        User receiver = null;
+        AccountDirectory.Entry receiverEntry =
+                accountDirectory.lookupReceiver(command.getReceiver());
+        if (receiverEntry != null) {
+            receiverAccount = receiverEntry.getAccount();
+            receiver = receiverEntry.getLastHolder();
         }
 
         if (senderAccount == null) {
@@ -81,44 +93,37 @@ public class SendMoney implements Command {
             for (Commerciant commerciant : commerciants) {
                 if (commerciant.getAccount().equals(receiverIBAN)) {
                     double amountInRon = exchangeRateManager.convert(
-                            command.getAmount(), senderAccount.getCurrency(), "RON");
+                            command.getAmount(), senderAccount.getCurrencyId(),
+                            exchangeRateManager.getRonId());
                     double amount = command.getAmount()
                             + senderAccount.getTransactionFee(amountInRon, command.getAmount());
 
-                    if (senderAccount.getBalance() >= amount
-                            && senderAccount.getBalance() - amount
-                            >= senderAccount.getMinBalance()) {
+                    if (isOverSpendingLimit(senderAccount, sender, amount)) {
+                        if (senderAccount.canPay(amount)) {
+                            return;
+                        }
+                    } else if (senderAccount.tryPay(amount)) {
                         if (senderAccount.getType().equals("business")) {
                             BusinessAccount businessAccount = (BusinessAccount) senderAccount;
                             if (businessAccount.getEmployees().contains(sender)) {
-                                if (businessAccount.getSpendingLimit() < amount) {
-                                    return;
-                                }
-                                double spentAmount = businessAccount.getEmployeeSpendings()
-                                        .getOrDefault(sender, 0.0);
-                                businessAccount.getEmployeeSpendings().put(sender,
-                                        spentAmount + amount);
+                                businessAccount.getEmployeeSpendings().add(sender,
+                                        command.getTimestamp(), amount);
                             }
                             if (businessAccount.getManagers().contains(sender)) {
-                                double spentAmount = businessAccount.getManagerSpendings()
-                                        .getOrDefault(sender, 0.0);
-                                businessAccount.getManagerSpendings().put(sender,
-                                        spentAmount + amount);
+                                businessAccount.getManagerSpendings().add(sender,
+                                        command.getTimestamp(), amount);
                             }
                         }
-                        senderAccount.pay(amount);
                         Transaction transaction = new Transaction.Builder()
                                 .timestamp(command.getTimestamp())
+                                .type(TransactionType.TRANSFER)
                                 .description(command.getDescription())
                                 .senderIBAN(senderAccount.getIBAN())
                                 .receiverIBAN(receiverIBAN)
-                                .amount(command.getAmount() + " "
-                                        + senderAccount.getCurrency())
+                                .amount(command.getAmount(), senderAccount.getCurrency())
                                 .transferType("sent")
                                 .build();
-                        transactionManager.addTransactionToUser(sender.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(sender.getEmail(),
-                                senderAccount.getIBAN(), transaction);
+                        transactionManager.addTransaction(sender, senderAccount, transaction);
                         if (senderAccount.hasDiscount(commerciant.getType())) {
                             double discount = senderAccount.getDiscount(commerciant.getType())
                                     * command.getAmount();
@@ -146,60 +151,75 @@ public class SendMoney implements Command {
         }
 
         double amountInRon = exchangeRateManager.convert(
-                command.getAmount(), senderAccount.getCurrency(), "RON");
+                command.getAmount(), senderAccount.getCurrencyId(),
+                exchangeRateManager.getRonId());
         double amountInReceiverCurrency = exchangeRateManager.convert(
-                command.getAmount(), senderAccount.getCurrency(), receiverAccount.getCurrency());
+                command.getAmount(), senderAccount.getCurrencyId(),
+                receiverAccount.getCurrencyId());
         double amount = command.getAmount() + senderAccount.getTransactionFee(amountInRon,
                 command.getAmount());
-        if (senderAccount.getBalance() >= amount
-                && senderAccount.getBalance() - amount >= senderAccount.getMinBalance()) {
+        if (isOverSpendingLimit(senderAccount, sender, command.getAmount())) {
+            if (senderAccount.canPay(amount)) {
+                return;
+            }
+        } else if (senderAccount.tryPay(amount)) {
             if (senderAccount.getType().equals("business")) {
                 BusinessAccount businessAccount = (BusinessAccount) senderAccount;
                 if (businessAccount.getEmployees().contains(sender)) {
-                    if (businessAccount.getSpendingLimit() < command.getAmount()) {
-                        return;
-                    }
-                    businessAccount.getEmployeeSpendings().put(sender, command.getAmount());
+                    businessAccount.getEmployeeSpendings().set(sender,
+                            command.getTimestamp(), command.getAmount());
                 }
                 if (businessAccount.getManagers().contains(sender)) {
-                    businessAccount.getManagerSpendings().put(sender, command.getAmount());
+                    businessAccount.getManagerSpendings().set(sender,
+                            command.getTimestamp(), command.getAmount());
                 }
             }
-            senderAccount.pay(amount);
             receiverAccount.addFunds(amountInReceiverCurrency);
 
             Transaction transaction = new Transaction.Builder()
                     .timestamp(command.getTimestamp())
+                    .type(TransactionType.TRANSFER)
                     .description(command.getDescription())
                     .senderIBAN(senderAccount.getIBAN())
                     .receiverIBAN(receiverAccount.getIBAN())
-                    .amount(command.getAmount() + " " + senderAccount.getCurrency())
+                    .amount(command.getAmount(), senderAccount.getCurrency())
                     .transferType("sent")
                     .build();
-            transactionManager.addTransactionToUser(sender.getEmail(), transaction);
-            transactionManager.addTransactionToAccount(sender.getEmail(),
-                    senderAccount.getIBAN(), transaction);
+            transactionManager.addTransaction(sender, senderAccount, transaction);
 
             transaction = new Transaction.Builder()
                     .timestamp(command.getTimestamp())
+                    .type(TransactionType.TRANSFER)
                     .description(command.getDescription())
                     .senderIBAN(senderAccount.getIBAN())
                     .receiverIBAN(receiverAccount.getIBAN())
-                    .amount(amountInReceiverCurrency + " " + receiverAccount.getCurrency())
+                    .amount(amountInReceiverCurrency, receiverAccount.getCurrency())
                     .transferType("received")
                     .build();
-            transactionManager.addTransactionToUser(receiver.getEmail(), transaction);
-            transactionManager.addTransactionToAccount(receiver.getEmail(),
-                    receiverAccount.getIBAN(), transaction);
+            transactionManager.addTransaction(receiver, receiverAccount, transaction);
 
             return;
         }
         Transaction transaction = new Transaction.Builder()
                 .timestamp(command.getTimestamp())
-                .description("Insufficient funds")
+                .type(TransactionType.INSUFFICIENT_FUNDS)
                 .build();
-        transactionManager.addTransactionToUser(sender.getEmail(), transaction);
-        transactionManager.addTransactionToAccount(sender.getEmail(),
-                senderAccount.getIBAN(), transaction);
+        transactionManager.addTransaction(sender, senderAccount, transaction);
+    }
+
+    /**
+     * Checks if an employee of a business account would go over its spending
+     * limit. Such transfers are dropped without a trace if the account could
+     * otherwise pay them.
+     * @param account the account paying
+     * @param user the user paying
+     * @param amount the amount compared with the spending limit
+     * @return true if the transfer is over the limit, false otherwise
+     */
+    private boolean isOverSpendingLimit(final Account account, final User user,
+                                        final double amount) {
+        return account.getType().equals("business")
+                && ((BusinessAccount) account).getEmployees().contains(user)
+                && ((BusinessAccount) account).getSpendingLimit() < amount;
     }
 }
@@ -1,38 +1,41 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.User;
+import org.poo.banksystem.UserDirectory;
 import org.poo.fileio.CommandInput;
-
-import java.util.List;
+import org.poo.fileio.OutputSink;
 
 public class SetAlias implements Command {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
 
     /**
      * Constructor for SetAlias.
-     * @param users the users
+     * @param userDirectory the user directory
+     * @param accountDirectory the account directory that resolves the aliases
      */
-    public SetAlias(final List<User> users) {
-        this.users = users;
+    public SetAlias(final UserDirectory userDirectory, final AccountDirectory accountDirectory) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
     }
 
     /**
      * This method is used to set an alias to an account.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            if (user.getEmail().equals(command.getEmail())) {
-                user.setAlias(command.getAlias(), command.getAccount());
-                return;
-            }
+                        final OutputSink output) {
+        User user = userDirectory.find(command.getEmail());
+        if (user != null) {
+            user.setAlias(command.getAlias(), command.getAccount());
+            accountDirectory.setAlias(user, command.getAlias(), command.getAccount());
+            return;
         }
 
         ObjectNode errorNode = objectMapper.createObjectNode();
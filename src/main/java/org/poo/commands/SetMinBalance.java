@@ -1,41 +1,36 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
-import org.poo.banksystem.User;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.fileio.CommandInput;
-
-import java.util.List;
+import org.poo.fileio.OutputSink;
 
 public class SetMinBalance implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
 
     /**
      * Constructor for SetMinBalance.
-     * @param users the users
+     * @param accountDirectory the account directory
      */
-    public SetMinBalance(final List<User> users) {
-        this.users = users;
+    public SetMinBalance(final AccountDirectory accountDirectory) {
+        this.accountDirectory = accountDirectory;
     }
 
     /**
      * This method is used to set the minimum balance of an account.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(command.getAccount())) {
-                    account.setMinBalance(command.getAmount());
-                    return;
-                }
-            }
+                        final OutputSink output) {
+        Account account = accountDirectory.findAccount(command.getAccount());
+        if (account != null) {
+            account.setMinBalance(command.getAmount());
+            return;
         }
 
         ObjectNode errorNode = objectMapper.createObjectNode();
@@ -1,46 +1,52 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.User;
 import org.poo.banksystem.ExchangeRateManager;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 public class SplitPayment implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
     private final ExchangeRateManager exchangeRateManager;
+    private final Map<Integer, SplitPaymentData> splitPayments;
     private SplitPaymentData splitPaymentData;
-    public static Map<Integer, SplitPaymentData> splitPayments = new HashMap<>();
 
     /**
      * Constructor for SplitPayment.
-     * @param users the users
+     * @param accountDirectory the account directory
      * @param exchangeRateManager the exchange rate manager
+     * @param splitPayments the pending split payments of the bank, by timestamp
      */
-    public SplitPayment(final List<User> users, final ExchangeRateManager exchangeRateManager) {
-        this.users = users;
+    public SplitPayment(final AccountDirectory accountDirectory,
+                        final ExchangeRateManager exchangeRateManager,
+                        final Map<Integer, SplitPaymentData> splitPayments) {
+        this.accountDirectory = accountDirectory;
         this.exchangeRateManager = exchangeRateManager;
+        this.splitPayments = splitPayments;
     }
 
     /**
      * This method is used to handle split payments between accounts.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        List<String> accountsForSplit = command.getAccounts();
+                        final OutputSink output) {
+        List<String> accountsForSplit = Arrays.asList(command.getAccounts());
         String type = command.getSplitPaymentType();
         String currency = command.getCurrency();
+        int currencyId = exchangeRateManager.getCurrencyId(currency);
         int timestamp = command.getTimestamp();
         List<Account> accounts = new ArrayList<>();
         List<User> usersInvolved = new ArrayList<>();
@@ -48,9 +54,8 @@ public class SplitPayment implements Command {
         if (type.equals("equal")) {
             double amountForSplit = command.getAmount() / accountsForSplit.size();
             for (String iban : accountsForSplit) {
-                Account account = findAccountByIBAN(iban);
-                User user = findUserByAccount(account);
-                if (account == null || user == null) {
+                AccountDirectory.Entry entry = accountDirectory.lookup(iban);
+                if (entry == null) {
                     ObjectNode errorNode = objectMapper.createObjectNode();
                     errorNode.put("command", "splitPayment");
                     errorNode.put("timestamp", timestamp);
@@ -58,25 +63,26 @@ public class SplitPayment implements Command {
                     output.add(errorNode);
                     return;
                 }
+                Account account = entry.getAccount();
+                User user = entry.getFirstHolder();
                 accounts.add(account);
                 usersInvolved.add(user);
                 double amountInAccountCurrency = exchangeRateManager
-                        .convert(amountForSplit, currency, account.getCurrency());
+                        .convert(amountForSplit, currencyId, account.getCurrencyId());
                 user.getSplitPaymentResponses().put(timestamp, "pending");
                 account.getSplitPaymentAmounts().put(timestamp, amountInAccountCurrency);
             }
             splitPaymentData = new SplitPaymentData(command.getAmount(),
                     currency, usersInvolved, accounts,
-                    accountsForSplit, "equal", null);
+                    new ArrayList<>(accountsForSplit), "equal", null);
             splitPayments.put(timestamp, splitPaymentData);
             return;
         }
         if (type.equals("custom")) {
-            List<Double> amountForUsers = command.getAmountForUsers();
+            double[] amountForUsers = command.getAmountForUsers();
             for (String iban : accountsForSplit) {
-                Account account = findAccountByIBAN(iban);
-                User user = findUserByAccount(account);
-                if (account == null || user == null) {
+                AccountDirectory.Entry entry = accountDirectory.lookup(iban);
+                if (entry == null) {
                     ObjectNode errorNode = objectMapper.createObjectNode();
                     errorNode.put("command", "splitPayment");
                     errorNode.put("timestamp", timestamp);
@@ -84,41 +90,22 @@ public class SplitPayment implements Command {
                     output.add(errorNode);
                     return;
                 }
+                Account account = entry.getAccount();
+                User user = entry.getFirstHolder();
                 accounts.add(account);
                 usersInvolved.add(user);
-                double amount = amountForUsers.get(accountsForSplit.indexOf(iban));
+                double amount = amountForUsers[accountsForSplit.indexOf(iban)];
                 double amountInAccountCurrency = exchangeRateManager
-                        .convert(amount, currency, account.getCurrency());
+                        .convert(amount, currencyId, account.getCurrencyId());
                 user.getSplitPaymentResponses().put(timestamp, "pending");
                 account.getSplitPaymentAmounts().put(timestamp, amountInAccountCurrency);
 
             }
+            // the command is reused for the next input, so the split keeps copies
             splitPaymentData = new SplitPaymentData(command.getAmount(), currency,
-                    usersInvolved, accounts,
-                    accountsForSplit, "custom", amountForUsers);
+                    usersInvolved, accounts, new ArrayList<>(accountsForSplit), "custom",
+                    Arrays.stream(amountForUsers).boxed().toList());
             splitPayments.put(timestamp, splitPaymentData);
         }
     }
-
-    private Account findAccountByIBAN(final String iban) {
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(iban)) {
-                    return account;
-                }
-            }
-        }
-        return null;
-    }
-
-    private User findUserByAccount(final Account account) {
-        for (User user : users) {
-            for (Account userAccount : user.getAccounts()) {
-                if (userAccount.equals(account)) {
-                    return user;
-                }
-            }
-        }
-        return null;
-    }
 }
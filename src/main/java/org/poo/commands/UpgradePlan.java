@@ -1,19 +1,19 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.banksystem.ExchangeRateManager;
 import org.poo.banksystem.User;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.TransactionManager;
 import org.poo.transactions.Transaction;
+import org.poo.transactions.TransactionType;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import java.util.List;
-
 public class UpgradePlan implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
     private final TransactionManager transactionManager;
     private final ExchangeRateManager exchangeRateManager;
     public static final int STANDARD_TO_SILVER = 100;
@@ -22,14 +22,14 @@ public class UpgradePlan implements Command {
 
     /**
      * Constructor for UpgradePlan.
-     * @param users the users
+     * @param accountDirectory the account directory
      * @param exchangeRateManager the exchange rate manager
      * @param transactionManager the transaction manager
      */
-    public UpgradePlan(final List<User> users,
+    public UpgradePlan(final AccountDirectory accountDirectory,
                        final ExchangeRateManager exchangeRateManager,
                        final TransactionManager transactionManager) {
-        this.users = users;
+        this.accountDirectory = accountDirectory;
         this.transactionManager = transactionManager;
         this.exchangeRateManager = exchangeRateManager;
     }
@@ -38,71 +38,62 @@ public class UpgradePlan implements Command {
      * This method is used to upgrade a plan.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
+                        final OutputSink output) {
         String newPlanType = command.getNewPlanType();
         String accountIBAN = command.getAccount();
         int timestamp = command.getTimestamp();
 
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(accountIBAN)) {
-                    String currentPlan = account.getPlanType();
-                    if (currentPlan.equals(newPlanType)) {
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(timestamp)
-                                .description("The user already has the " + newPlanType + " plan.")
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(), accountIBAN,
-                                transaction);
-                        return;
-                    }
-                    if (isDowngrade(currentPlan, newPlanType)) {
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(timestamp)
-                                .description("You cannot downgrade your plan.")
-                                .accountIBAN(accountIBAN)
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(), accountIBAN,
-                                transaction);
-                        return;
-                    }
+        AccountDirectory.Entry entry = accountDirectory.lookup(accountIBAN);
+        if (entry != null) {
+            Account account = entry.getAccount();
+            User user = entry.getFirstHolder();
+            String currentPlan = account.getPlanType();
+            if (currentPlan.equals(newPlanType)) {
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(timestamp)
+                        .type(TransactionType.PLAN_ALREADY_OWNED, newPlanType)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
+            }
+            if (isDowngrade(currentPlan, newPlanType)) {
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(timestamp)
+                        .type(TransactionType.PLAN_DOWNGRADE)
+                        .accountIBAN(accountIBAN)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
+            }
 
-                    double feeInRON = calculateUpgradeFee(currentPlan, newPlanType);
-                    double feeInAccountCurrency = exchangeRateManager.convert(feeInRON, "RON",
-                            account.getCurrency());
+            double feeInRON = calculateUpgradeFee(currentPlan, newPlanType);
+            double feeInAccountCurrency = exchangeRateManager.convert(feeInRON,
+                    exchangeRateManager.getRonId(), account.getCurrencyId());
 
-                    if (account.getBalance() < feeInAccountCurrency) {
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(timestamp)
-                                .description("Insufficient funds")
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(), accountIBAN,
-                                transaction);
-                        return;
-                    }
+            if (account.getBalance() < feeInAccountCurrency) {
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(timestamp)
+                        .type(TransactionType.INSUFFICIENT_FUNDS)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
+            }
 
-                    account.pay(feeInAccountCurrency);
-                    user.setPlanTypeForAllAccounts(newPlanType);
+            account.pay(feeInAccountCurrency);
+            user.setPlanTypeForAllAccounts(newPlanType);
 
-                    Transaction transaction = new Transaction.Builder()
-                            .timestamp(timestamp)
-                            .description("Upgrade plan")
-                            .accountIBAN(accountIBAN)
-                            .newPlanType(newPlanType)
-                            .build();
-                    transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                    transactionManager.addTransactionToAccount(user.getEmail(),
-                            accountIBAN, transaction);
-                    return;
-                }
-            }
+            Transaction transaction = new Transaction.Builder()
+                    .timestamp(timestamp)
+                    .type(TransactionType.UPGRADE_PLAN)
+                    .accountIBAN(accountIBAN)
+                    .newPlanType(newPlanType)
+                    .build();
+            transactionManager.addTransaction(user, account, transaction);
+            return;
         }
         ObjectNode commandNode = objectMapper.createObjectNode();
         commandNode.put("command", "upgradePlan");
@@ -1,30 +1,31 @@
 package org.poo.commands;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.ExchangeRateManager;
 import org.poo.banksystem.User;
 import org.poo.fileio.CommandInput;
+import org.poo.fileio.OutputSink;
 import org.poo.transactions.Transaction;
 import org.poo.transactions.TransactionManager;
-
-import java.util.List;
+import org.poo.transactions.TransactionType;
 
 public class WithdrawSavings implements Command {
-    private final List<User> users;
+    private final AccountDirectory accountDirectory;
     private final ExchangeRateManager exchangeRateManager;
     private final TransactionManager transactionManager;
     public static final int MINIMUM_AGE = 21;
     /**
      * Constructor for WithdrawSavings.
-     * @param users the users
+     * @param accountDirectory the account directory
      * @param exchangeRateManager the exchange rate manager
      */
-    public WithdrawSavings(final List<User> users, final ExchangeRateManager exchangeRateManager,
+    public WithdrawSavings(final AccountDirectory accountDirectory,
+                           final ExchangeRateManager exchangeRateManager,
                            final TransactionManager transactionManager) {
-        this.users = users;
+        this.accountDirectory = accountDirectory;
         this.exchangeRateManager = exchangeRateManager;
         this.transactionManager = transactionManager;
     }
@@ -33,83 +34,70 @@ public class WithdrawSavings implements Command {
      * This method is used to handle withdrawals from savings accounts.
      * @param command the command to be executed
      * @param objectMapper the object mapper
-     * @param output the output array
+     * @param output the output sink
      */
     @Override
     public void execute(final CommandInput command, final ObjectMapper objectMapper,
-                        final ArrayNode output) {
-        for (User user : users) {
-            for (Account account : user.getAccounts()) {
-                if (account.getIBAN().equals(command.getAccount())) {
-                    if (!account.getType().equals("savings")) {
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("Account is not of type savings.")
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                account.getIBAN(), transaction);
-                        return;
-                    }
-
-                    if (user.getAge() < MINIMUM_AGE) {
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("You don't have the minimum age required.")
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                account.getIBAN(), transaction);
-                        return;
-                    }
+                        final OutputSink output) {
+        AccountDirectory.Entry entry = accountDirectory.lookup(command.getAccount());
+        if (entry != null) {
+            Account account = entry.getAccount();
+            User user = entry.getFirstHolder();
+            if (!account.getType().equals("savings")) {
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.NOT_SAVINGS_ACCOUNT)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
+            }
 
-                    Account receiverAccount = user.getFirstClassicAccountInCurrency(command
-                            .getCurrency());
+            if (user.getAge() < MINIMUM_AGE) {
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.MINIMUM_AGE_NOT_MET)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
+            }
 
-                    if (receiverAccount == null) {
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("You do not have a classic account.")
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                account.getIBAN(), transaction);
-                        return;
-                    }
+            Account receiverAccount = user.getFirstClassicAccountInCurrency(command
+                    .getCurrency());
 
-                    double convertedAmount = exchangeRateManager.convert(
-                            command.getAmount(), command.getCurrency(),
-                            account.getCurrency());
-                    if (account.getBalance() < convertedAmount) {
-                        Transaction transaction = new Transaction.Builder()
-                                .timestamp(command.getTimestamp())
-                                .description("Insufficient funds")
-                                .build();
-                        transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                        transactionManager.addTransactionToAccount(user.getEmail(),
-                                account.getIBAN(), transaction);
-                        return;
-                    }
+            if (receiverAccount == null) {
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.NO_CLASSIC_ACCOUNT)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
+            }
 
-                    account.pay(convertedAmount);
-                    receiverAccount.addFunds(command.getAmount());
-                    Transaction transaction = new Transaction.Builder()
-                            .timestamp(command.getTimestamp())
-                            .description("Savings withdrawal")
-                            .amount(String.valueOf(command.getAmount()))
-                            .classicAccountIBAN(receiverAccount.getIBAN())
-                            .savingsAccountIBAN(account.getIBAN())
-                            .build();
-                    transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                    transactionManager.addTransactionToAccount(user.getEmail(),
-                            account.getIBAN(), transaction);
-                    transactionManager.addTransactionToUser(user.getEmail(), transaction);
-                    transactionManager.addTransactionToAccount(user.getEmail(),
-                            receiverAccount.getIBAN(),
-                            transaction);
-                    return;
-                }
+            double convertedAmount = exchangeRateManager.convert(
+                    command.getAmount(),
+                    exchangeRateManager.getCurrencyId(command.getCurrency()),
+                    account.getCurrencyId());
+            if (account.getBalance() < convertedAmount) {
+                Transaction transaction = new Transaction.Builder()
+                        .timestamp(command.getTimestamp())
+                        .type(TransactionType.INSUFFICIENT_FUNDS)
+                        .build();
+                transactionManager.addTransaction(user, account, transaction);
+                return;
             }
+
+            account.pay(convertedAmount);
+            receiverAccount.addFunds(command.getAmount());
+            Transaction transaction = new Transaction.Builder()
+                    .timestamp(command.getTimestamp())
+                    .type(TransactionType.SAVINGS_WITHDRAWAL)
+                    .amount(command.getAmount())
+                    .classicAccountIBAN(receiverAccount.getIBAN())
+                    .savingsAccountIBAN(account.getIBAN())
+                    .build();
+            transactionManager.addTransaction(user, account, transaction);
+            transactionManager.addTransaction(user, receiverAccount, transaction);
+            return;
         }
 
         ObjectNode commandNode = objectMapper.createObjectNode();
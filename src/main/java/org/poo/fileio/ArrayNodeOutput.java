@@ -0,0 +1,36 @@
+package org.poo.fileio;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+/**
+ * An output sink that collects the outputs into a JSON array in memory.
+ */
+public final class ArrayNodeOutput implements OutputSink {
+    private final ArrayNode array;
+
+    /**
+     * Constructor for ArrayNodeOutput.
+     * @param array the array the outputs are added to
+     */
+    public ArrayNodeOutput(final ArrayNode array) {
+        this.array = array;
+    }
+
+    /**
+     * Adds an output at the end of the array.
+     * @param node the output
+     */
+    @Override
+    public void add(final JsonNode node) {
+        array.add(node);
+    }
+
+    /**
+     * Getter for the array.
+     * @return the array holding the outputs
+     */
+    public ArrayNode getArray() {
+        return array;
+    }
+}
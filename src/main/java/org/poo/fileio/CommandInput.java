@@ -1,9 +1,9 @@
 package org.poo.fileio;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-
-import java.util.List;
+import org.poo.commands.CommandType;
 
 @Data
 @NoArgsConstructor
@@ -32,6 +32,90 @@ public final class CommandInput {
     private double depositLimit;
     private double amount;
     private double minBalance;
-    private List<String> accounts;
-    private List<Double> amountForUsers;
+    private String[] accounts;
+    private double[] amountForUsers;
+    @JsonIgnore
+    private CommandType commandType;
+
+    /**
+     * Setter for the name of the command, which also resolves its type.
+     *
+     * @param command the name of the command
+     */
+    public void setCommand(final String command) {
+        this.command = command;
+        this.commandType = CommandType.fromName(command);
+    }
+
+    /**
+     * Clears every field, so the same object can be filled in with the next
+     * command read from the input.
+     */
+    public void reset() {
+        command = null;
+        email = null;
+        account = null;
+        newPlanType = null;
+        role = null;
+        currency = null;
+        target = null;
+        description = null;
+        cardNumber = null;
+        commerciant = null;
+        receiver = null;
+        alias = null;
+        accountType = null;
+        splitPaymentType = null;
+        type = null;
+        location = null;
+        timestamp = 0;
+        startTimestamp = 0;
+        endTimestamp = 0;
+        interestRate = 0;
+        spendingLimit = 0;
+        depositLimit = 0;
+        amount = 0;
+        minBalance = 0;
+        accounts = null;
+        amountForUsers = null;
+        commandType = null;
+    }
+
+    /**
+     * Copies the command, for when it must outlive the next command read into
+     * this object.
+     *
+     * @return a copy of the command
+     */
+    public CommandInput copy() {
+        CommandInput copy = new CommandInput();
+        copy.command = command;
+        copy.email = email;
+        copy.account = account;
+        copy.newPlanType = newPlanType;
+        copy.role = role;
+        copy.currency = currency;
+        copy.target = target;
+        copy.description = description;
+        copy.cardNumber = cardNumber;
+        copy.commerciant = commerciant;
+        copy.receiver = receiver;
+        copy.alias = alias;
+        copy.accountType = accountType;
+        copy.splitPaymentType = splitPaymentType;
+        copy.type = type;
+        copy.location = location;
+        copy.timestamp = timestamp;
+        copy.startTimestamp = startTimestamp;
+        copy.endTimestamp = endTimestamp;
+        copy.interestRate = interestRate;
+        copy.spendingLimit = spendingLimit;
+        copy.depositLimit = depositLimit;
+        copy.amount = amount;
+        copy.minBalance = minBalance;
+        copy.accounts = accounts;
+        copy.amountForUsers = amountForUsers;
+        copy.commandType = commandType;
+        return copy;
+    }
 }
@@ -0,0 +1,18 @@
+package org.poo.fileio;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The destination of the outputs produced by the commands.
+ * <p>
+ * Each output is handed over once it is complete, so a sink may write it out
+ * right away instead of keeping every output of the run in memory.
+ * </p>
+ */
+public interface OutputSink {
+    /**
+     * Adds an output after the ones already added.
+     * @param node the output
+     */
+    void add(JsonNode node);
+}
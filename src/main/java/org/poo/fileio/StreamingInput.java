@@ -0,0 +1,127 @@
+package org.poo.fileio;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Reads an input file without loading all of its commands at once.
+ * <p>
+ * The users, exchange rates and commerciants are read when the input is opened,
+ * and the commands are then parsed one at a time, as they are asked for, so
+ * only the command being executed is kept in memory. The commands are all read
+ * into the same {@link CommandInput}, which is cleared before each one and is
+ * only valid until the next command is read. If the commands come before the
+ * rest of the input in the file, they are read ahead and kept until they are
+ * asked for.
+ * </p>
+ */
+public final class StreamingInput implements Closeable {
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final ObjectInput header = new ObjectInput();
+    private final Queue<CommandInput> readAhead = new ArrayDeque<>();
+    private final CommandInput current = new CommandInput();
+    private final ObjectReader commandReader;
+    private boolean inCommands;
+
+    /**
+     * Constructor for StreamingInput. Reads everything in the file up to the
+     * first command.
+     * @param objectMapper the object mapper used to read the input
+     * @param file the input file
+     * @throws IOException if the file cannot be read or is not a JSON object
+     */
+    public StreamingInput(final ObjectMapper objectMapper, final File file) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(file);
+        this.commandReader = objectMapper.readerForUpdating(current);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("The input is not a JSON object");
+        }
+        header.setCommands(new CommandInput[0]);
+        readUntilCommands();
+    }
+
+    /**
+     * Getter for the users, exchange rates and commerciants of the input.
+     * @return the input, without its commands
+     */
+    public ObjectInput getHeader() {
+        return header;
+    }
+
+    /**
+     * Reads the next command.
+     * @return the command, or null if there are no commands left; the command
+     *         may be overwritten by the next call
+     * @throws IOException if the file cannot be read
+     */
+    public CommandInput nextCommand() throws IOException {
+        if (!readAhead.isEmpty()) {
+            return readAhead.poll();
+        }
+        while (inCommands) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                current.reset();
+                return commandReader.readValue(parser);
+            }
+            // the end of the commands; the rest of the file holds no more of them
+            inCommands = false;
+            readUntilCommands();
+        }
+        return null;
+    }
+
+    /**
+     * Closes the input file.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    /**
+     * Reads the fields of the input until the start of the commands, or until
+     * the end of the input. Commands found before the rest of the input is read
+     * are kept aside.
+     * @throws IOException if the file cannot be read
+     */
+    private void readUntilCommands() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "users" -> header.setUsers(objectMapper.readValue(parser,
+                        UserInput[].class));
+                case "exchangeRates" -> header.setExchangeRates(objectMapper.readValue(parser,
+                        ExchangeInput[].class));
+                case "commerciants" -> header.setCommerciants(objectMapper.readValue(parser,
+                        CommerciantInput[].class));
+                case "commands" -> {
+                    if (isHeaderComplete()) {
+                        inCommands = true;
+                        return;
+                    }
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readAhead.add(objectMapper.readValue(parser, CommandInput.class));
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private boolean isHeaderComplete() {
+        return header.getUsers() != null && header.getExchangeRates() != null
+                && header.getCommerciants() != null;
+    }
+}
@@ -0,0 +1,75 @@
+package org.poo.fileio;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * An output sink that writes the outputs to a file as they are added.
+ * <p>
+ * The file holds a pretty printed JSON array, laid out exactly like the one
+ * written by {@code writerWithDefaultPrettyPrinter}, but only the output being
+ * written is kept in memory. The outputs go through a buffer and are not
+ * flushed one by one, so the file is written in large blocks. The array is
+ * closed, and the buffer flushed, when the sink is closed.
+ * </p>
+ */
+public final class StreamingOutput implements OutputSink, Closeable {
+    private static final int BUFFER_SIZE = 65_536;
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+
+    /**
+     * Constructor for StreamingOutput. Starts the array in the file.
+     * @param objectMapper the object mapper used to write the outputs
+     * @param file the file the outputs are written to
+     * @throws IOException if the file cannot be written
+     */
+    public StreamingOutput(final ObjectMapper objectMapper, final File file)
+            throws IOException {
+        this.writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = objectMapper.getFactory().createGenerator(
+                new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE),
+                JsonEncoding.UTF8);
+        generator.setPrettyPrinter(new DefaultPrettyPrinter());
+        generator.writeStartArray();
+    }
+
+    /**
+     * Writes an output as the next element of the array.
+     * @param node the output
+     */
+    @Override
+    public void add(final JsonNode node) {
+        try {
+            writer.writeValue(generator, node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ends the array and closes the file, even if the array cannot be ended.
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            generator.writeEndArray();
+        } finally {
+            generator.close();
+        }
+    }
+}
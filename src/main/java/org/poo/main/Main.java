@@ -1,13 +1,12 @@
 package org.poo.main;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import org.poo.banksystem.Bank;
 import org.poo.checker.Checker;
 import org.poo.checker.CheckerConstants;
-import org.poo.fileio.ObjectInput;
-import org.poo.utils.Utils;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.StreamingInput;
+import org.poo.fileio.StreamingOutput;
 
 import java.io.File;
 import java.io.IOException;
@@ -72,7 +71,6 @@ public final class Main {
                               final String filePath2) throws IOException {
         ObjectMapper objectMapper = new ObjectMapper();
         File file = new File(CheckerConstants.TESTS_PATH + filePath1);
-        ObjectInput inputData = objectMapper.readValue(file, ObjectInput.class);
 
         /*
          * TODO Implement your function here
@@ -92,12 +90,14 @@ public final class Main {
          * output.add(objectNode);
          *
          */
-        Utils.resetRandom();
-        ArrayNode output = objectMapper.createArrayNode();
-        Bank bank = new Bank(objectMapper, inputData);
-        bank.executeCommands(output);
-        ObjectWriter objectWriter = objectMapper.writerWithDefaultPrettyPrinter();
-        objectWriter.writeValue(new File(filePath2), output);
+        try (StreamingInput input = new StreamingInput(objectMapper, file);
+             StreamingOutput output = new StreamingOutput(objectMapper, new File(filePath2))) {
+            Bank bank = new Bank(objectMapper, input.getHeader());
+            for (CommandInput command = input.nextCommand(); command != null;
+                 command = input.nextCommand()) {
+                bank.executeCommand(command, output);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,164 @@
+package org.poo.persistence;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decodes a snapshot written by {@link SnapshotOutput}.
+ * <p>
+ * Snapshot files are memory-mapped rather than read into the heap, so the
+ * operating system pages them in as they are decoded. A single mapping can't
+ * exceed 2 GB, so larger files are mapped in consecutive chunks, and a value
+ * may start in one chunk and end in the next.
+ * </p>
+ */
+public final class SnapshotInput {
+    private static final long CHUNK_SIZE = 1_073_741_824L;
+    private static final int BYTE_MASK = 0xFF;
+    private final ByteBuffer[] chunks;
+    private int chunk;
+    private ByteBuffer buffer;
+
+    /**
+     * Constructor for SnapshotInput.
+     *
+     * @param chunks the encoded snapshot, in consecutive parts
+     */
+    public SnapshotInput(final ByteBuffer... chunks) {
+        if (chunks.length == 0) {
+            throw new IllegalArgumentException("A snapshot needs at least one chunk");
+        }
+        this.chunks = chunks;
+        this.buffer = chunks[0];
+    }
+
+    /**
+     * Maps a snapshot file into memory.
+     *
+     * @param path the snapshot file
+     * @return the input reading the file
+     * @throws IOException if the file cannot be mapped
+     */
+    public static SnapshotInput map(final Path path) throws IOException {
+        return map(path, CHUNK_SIZE);
+    }
+
+    /**
+     * Maps a snapshot file into memory, in chunks of at most the given size.
+     *
+     * @param path      the snapshot file
+     * @param chunkSize the largest size of a chunk, at most 2 GB
+     * @return the input reading the file
+     * @throws IOException if the file cannot be mapped
+     */
+    static SnapshotInput map(final Path path, final long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+            ByteBuffer[] chunks = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long position = i * chunkSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(chunkSize, size - position));
+            }
+            return new SnapshotInput(chunks);
+        }
+    }
+
+    /**
+     * Reads an int.
+     *
+     * @return the value
+     */
+    public int readInt() {
+        if (buffer.remaining() >= Integer.BYTES) {
+            return buffer.getInt();
+        }
+        return (int) readAcrossChunks(Integer.BYTES);
+    }
+
+    /**
+     * Reads a long.
+     *
+     * @return the value
+     */
+    public long readLong() {
+        if (buffer.remaining() >= Long.BYTES) {
+            return buffer.getLong();
+        }
+        return readAcrossChunks(Long.BYTES);
+    }
+
+    /**
+     * Reads a double.
+     *
+     * @return the value
+     */
+    public double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    /**
+     * Reads a boolean.
+     *
+     * @return the value
+     */
+    public boolean readBoolean() {
+        return nextChunkWithData().get() != 0;
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @return the value, which may be null
+     */
+    public String readString() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        int read = 0;
+        while (read < length) {
+            ByteBuffer current = nextChunkWithData();
+            int count = Math.min(current.remaining(), length - read);
+            current.get(encoded, read, count);
+            read += count;
+        }
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a big-endian number whose bytes are split between chunks.
+     *
+     * @param bytes the width of the number
+     * @return the number
+     */
+    private long readAcrossChunks(final int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value = (value << Byte.SIZE) | (nextChunkWithData().get() & BYTE_MASK);
+        }
+        return value;
+    }
+
+    /**
+     * Moves to the next chunk if the current one was read entirely.
+     *
+     * @return the chunk the next byte is read from
+     */
+    private ByteBuffer nextChunkWithData() {
+        while (!buffer.hasRemaining()) {
+            if (chunk + 1 == chunks.length) {
+                throw new BufferUnderflowException();
+            }
+            buffer = chunks[++chunk];
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,120 @@
+package org.poo.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the state of the bank into the binary snapshot format.
+ * <p>
+ * Numbers are written big-endian with their natural width, and strings as
+ * their length in bytes followed by their UTF-8 bytes, with a length of -1
+ * standing for null. The snapshot is streamed to a channel through a fixed
+ * buffer, so it never has to fit in memory and has no size limit.
+ * </p>
+ */
+public final class SnapshotOutput {
+    private static final int BUFFER_SIZE = 65_536;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Constructor for SnapshotOutput.
+     *
+     * @param channel the channel the snapshot is written to
+     */
+    public SnapshotOutput(final WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes an int.
+     *
+     * @param value the value
+     */
+    public void writeInt(final int value) {
+        reserve(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Writes a long.
+     *
+     * @param value the value
+     */
+    public void writeLong(final long value) {
+        reserve(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes a double, keeping its exact bits.
+     *
+     * @param value the value
+     */
+    public void writeDouble(final double value) {
+        reserve(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Writes a boolean.
+     *
+     * @param value the value
+     */
+    public void writeBoolean(final boolean value) {
+        reserve(1);
+        buffer.put((byte) (value ? 1 : 0));
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param value the value, which may be null
+     */
+    public void writeString(final String value) {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(encoded.length);
+        int written = 0;
+        while (written < encoded.length) {
+            reserve(1);
+            int length = Math.min(buffer.remaining(), encoded.length - written);
+            buffer.put(encoded, written, length);
+            written += length;
+        }
+    }
+
+    /**
+     * Writes everything still buffered to the channel.
+     *
+     * @throws IOException if the channel cannot be written to
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Makes room in the buffer, writing it to the channel if it is too full.
+     *
+     * @param bytes the number of bytes about to be put
+     */
+    private void reserve(final int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
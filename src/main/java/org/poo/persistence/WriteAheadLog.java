@@ -0,0 +1,220 @@
+package org.poo.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.poo.fileio.CommandInput;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only log of the commands that change the state of the bank.
+ * <p>
+ * Every record holds the length of the command, a CRC of it and the command
+ * itself, encoded as JSON. Records are buffered and written to the file in
+ * groups, and the file is forced to disk after a configurable number of groups,
+ * trading how many of the last commands can be lost in a crash for throughput.
+ * </p>
+ * <p>
+ * A record cut short by a crash, or one whose CRC does not match, ends the log:
+ * it and everything after it are ignored when replaying, and dropped from the
+ * file when the log is opened again for writing.
+ * </p>
+ */
+public final class WriteAheadLog implements Closeable {
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final FileChannel channel;
+    private final ObjectWriter commandWriter;
+    private final int groupCommitSize;
+    private final int groupsPerSync;
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    private int bufferedRecords;
+    private int unsyncedGroups;
+
+    /**
+     * Constructor for WriteAheadLog. Opens the log, creating it if needed, and
+     * positions it after its last complete record.
+     *
+     * @param path            the file of the log
+     * @param objectMapper    the object mapper used to encode the commands
+     * @param groupCommitSize the number of records written to the file at once
+     * @param groupsPerSync   the number of groups written between two syncs to disk
+     * @throws IOException if the log cannot be opened
+     */
+    public WriteAheadLog(final Path path, final ObjectMapper objectMapper,
+                         final int groupCommitSize, final int groupsPerSync)
+            throws IOException {
+        if (groupCommitSize < 1 || groupsPerSync < 1) {
+            throw new IllegalArgumentException("Group sizes must be positive");
+        }
+        this.commandWriter = objectMapper.writerFor(CommandInput.class);
+        this.groupCommitSize = groupCommitSize;
+        this.groupsPerSync = groupsPerSync;
+        long validLength = Files.exists(path) ? replay(path, objectMapper, command -> { }) : 0;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        channel.truncate(validLength);
+        channel.position(validLength);
+    }
+
+    /**
+     * Appends a command to the log. The command reaches the file once its group
+     * is complete, and the disk once enough groups were written.
+     *
+     * @param command the command
+     * @throws IOException if the log cannot be written
+     */
+    public void append(final CommandInput command) throws IOException {
+        byte[] payload = commandWriter.writeValueAsBytes(command);
+        crc.reset();
+        crc.update(payload);
+        if (buffer.remaining() < HEADER_SIZE + payload.length) {
+            // the records already buffered form a group of their own
+            commitGroup();
+            if (buffer.capacity() < HEADER_SIZE + payload.length) {
+                buffer = ByteBuffer.allocate(
+                        Math.max(2 * buffer.capacity(), HEADER_SIZE + payload.length));
+            }
+        }
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        bufferedRecords++;
+        if (bufferedRecords >= groupCommitSize) {
+            commitGroup();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file and forces the file to disk.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    public void sync() throws IOException {
+        writeBuffer();
+        bufferedRecords = 0;
+        channel.force(false);
+        unsyncedGroups = 0;
+    }
+
+    /**
+     * Getter for the length of the log, counting the records not yet written to
+     * the file.
+     *
+     * @return the offset the next record will be written at
+     * @throws IOException if the position in the file cannot be read
+     */
+    public long length() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    /**
+     * Syncs the log and closes the file.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Reads the commands of a log, in the order they were appended, stopping at
+     * the first incomplete or corrupted record.
+     *
+     * @param path         the file of the log
+     * @param objectMapper the object mapper used to decode the commands
+     * @param consumer     receives every command of the log
+     * @return the length of the log up to its last valid record
+     * @throws IOException if the log cannot be read
+     */
+    public static long replay(final Path path, final ObjectMapper objectMapper,
+                              final Consumer<CommandInput> consumer) throws IOException {
+        return replay(path, objectMapper, 0, consumer);
+    }
+
+    /**
+     * Reads the commands of a log starting from a record boundary, such as the
+     * length of the log when a snapshot was taken, stopping at the first
+     * incomplete or corrupted record.
+     *
+     * @param path         the file of the log
+     * @param objectMapper the object mapper used to decode the commands
+     * @param fromOffset   the offset of the first record to be read
+     * @param consumer     receives every command of the log after the offset
+     * @return the length of the log up to its last valid record
+     * @throws IOException if the log cannot be read
+     */
+    public static long replay(final Path path, final ObjectMapper objectMapper,
+                              final long fromOffset, final Consumer<CommandInput> consumer)
+            throws IOException {
+        ObjectReader commandReader = objectMapper.readerFor(CommandInput.class);
+        CRC32C crc = new CRC32C();
+        long fileLength = Files.size(path);
+        long validLength = Math.min(fromOffset, fileLength);
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream input = new DataInputStream(new BufferedInputStream(file))) {
+            input.skipNBytes(validLength);
+            while (true) {
+                byte[] payload;
+                int checksum;
+                try {
+                    int length = input.readInt();
+                    checksum = input.readInt();
+                    if (length < 0 || length > fileLength - validLength - HEADER_SIZE) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    input.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                consumer.accept(commandReader.readValue(payload));
+                validLength += HEADER_SIZE + payload.length;
+            }
+        }
+        return validLength;
+    }
+
+    private void commitGroup() throws IOException {
+        writeBuffer();
+        bufferedRecords = 0;
+        unsyncedGroups++;
+        if (unsyncedGroups >= groupsPerSync) {
+            channel.force(false);
+            unsyncedGroups = 0;
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
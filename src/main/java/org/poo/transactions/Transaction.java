@@ -2,6 +2,10 @@ package org.poo.transactions;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,11 +19,19 @@ import java.util.List;
  */
 public final class Transaction {
     private final int timestamp;
-    private final String description;
+    private final TransactionType type;
+    private final Object[] descriptionArguments;
+    // formatted on first use; volatile because the same transaction can be read
+    // from several ledgers at once, and racing threads format the same string
+    private volatile String description;
     private final String senderIBAN;
     private final String receiverIBAN;
     private final String accountIBAN;
-    private final String amount;
+    private final boolean hasAmount;
+    private final double amount;
+    private final String amountCurrency;
+    private final String amountText;
+    private final boolean amountPrintedAsText;
     private final String transferType;
     private final String commerciant;
     private final String account;
@@ -42,12 +54,20 @@ public final class Transaction {
      */
     private Transaction(final Builder builder) {
         this.timestamp = builder.timestamp;
-        this.description = builder.description;
+        this.type = builder.type == null ? TransactionType.OTHER : builder.type;
+        this.descriptionArguments = builder.descriptionArguments;
+        this.description = builder.description != null ? builder.description
+                : type.isFormatted() ? null : type.describe();
         this.senderIBAN = builder.senderIBAN;
         this.receiverIBAN = builder.receiverIBAN;
         this.accountIBAN = builder.accountIBAN;
         this.newPlanType = builder.newPlanType;
+        this.hasAmount = builder.hasAmount;
         this.amount = builder.amount;
+        this.amountCurrency = builder.amountCurrency;
+        this.amountText = builder.amountText;
+        this.amountPrintedAsText = type == TransactionType.OTHER
+                ? !isAmountPrintedAsNumber(description) : !type.isAmountPrintedAsNumber();
         this.transferType = builder.transferType;
         this.commerciant = builder.commerciant;
         this.account = builder.account;
@@ -67,16 +87,22 @@ public final class Transaction {
      * <p>
      * The Builder design pattern is used to provide a flexible and readable way
      * to create instances of Transaction. It allows setting only the necessary
-     * fields and ensures that the Transaction object is immutable once created.
+     * fields, and the Transaction object created does not change afterwards; the
+     * only field written later is the cached text of a formatted description.
      * </p>
      */
     public static class Builder {
         private int timestamp;
+        private TransactionType type;
+        private Object[] descriptionArguments;
         private String description;
         private String senderIBAN;
         private String receiverIBAN;
         private String accountIBAN;
-        private String amount;
+        private boolean hasAmount;
+        private double amount;
+        private String amountCurrency;
+        private String amountText;
         private String transferType;
         private String commerciant;
         private String account;
@@ -102,6 +128,21 @@ public final class Transaction {
             return this;
         }
 
+        /**
+         * Sets the type of the transaction, which also gives its description.
+         *
+         * @param inputType the type of the transaction
+         * @param inputDescriptionArguments the arguments of the description, for the
+         *                                  types whose description is a format
+         * @return the builder instance
+         */
+        public Builder type(final TransactionType inputType,
+                            final Object... inputDescriptionArguments) {
+            this.type = inputType;
+            this.descriptionArguments = inputDescriptionArguments;
+            return this;
+        }
+
         /**
          * Sets the description for the transaction.
          *
@@ -162,8 +203,47 @@ public final class Transaction {
          * @param inputAmount the amount of the transaction
          * @return the builder instance
          */
-        public Builder amount(final String inputAmount) {
+        public Builder amount(final double inputAmount) {
+            this.hasAmount = true;
             this.amount = inputAmount;
+            this.amountCurrency = null;
+            this.amountText = null;
+            return this;
+        }
+
+        /**
+         * Sets the amount for the transaction, printed together with its currency.
+         *
+         * @param inputAmount the amount of the transaction
+         * @param inputCurrency the currency of the amount
+         * @return the builder instance
+         */
+        public Builder amount(final double inputAmount, final String inputCurrency) {
+            amount(inputAmount);
+            this.amountCurrency = inputCurrency;
+            return this;
+        }
+
+        /**
+         * Sets the amount for the transaction from its text form.
+         * <p>
+         * Numeric text is stored as a number; any other text is kept as it is.
+         * </p>
+         *
+         * @param inputAmount the amount of the transaction
+         * @return the builder instance
+         */
+        public Builder amount(final String inputAmount) {
+            if (inputAmount == null) {
+                this.hasAmount = false;
+                return this;
+            }
+            try {
+                amount(Double.parseDouble(inputAmount));
+            } catch (NumberFormatException e) {
+                amount(Double.NaN);
+                this.amountText = inputAmount;
+            }
             return this;
         }
 
@@ -316,13 +396,30 @@ public final class Transaction {
         return timestamp;
     }
 
+    /**
+     * Gets the type of the transaction.
+     *
+     * @return the type of the transaction
+     */
+    public TransactionType getType() {
+        return type;
+    }
+
     /**
      * Gets the description of the transaction.
+     * <p>
+     * Descriptions that are formats are only formatted the first time they are needed.
+     * </p>
      *
      * @return the description of the transaction
      */
     public String getDescription() {
-        return description;
+        String text = description;
+        if (text == null && type.isFormatted()) {
+            text = type.describe(descriptionArguments);
+            description = text;
+        }
+        return text;
     }
 
     /**
@@ -351,13 +448,55 @@ public final class Transaction {
         return receiverIBAN;
     }
 
+    /**
+     * Checks if the transaction has an amount.
+     *
+     * @return true if the transaction has an amount, false otherwise
+     */
+    public boolean hasAmount() {
+        return hasAmount;
+    }
+
     /**
      * Gets the amount of the transaction.
      *
-     * @return the amount of the transaction
+     * @return the amount of the transaction, or NaN if it has no numeric amount
+     */
+    public double getAmount() {
+        return hasAmount ? amount : Double.NaN;
+    }
+
+    /**
+     * Gets the amount of the transaction as it is printed for the transaction
+     * kinds that print it as text.
+     *
+     * @return the text form of the amount, or null if the transaction has no amount
+     */
+    public String getAmountText() {
+        if (!hasAmount) {
+            return null;
+        }
+        if (amountText != null) {
+            return amountText;
+        }
+        if (amountCurrency != null) {
+            return amount + " " + amountCurrency;
+        }
+        return String.valueOf(amount);
+    }
+
+    /**
+     * Checks if the transactions with the given description print their amount
+     * as a number. Only used for the transactions built without a type.
+     *
+     * @param description the description of the transaction
+     * @return true for card payments, split payments, withdrawals and interest income
      */
-    public String getAmount() {
-        return amount;
+    private static boolean isAmountPrintedAsNumber(final String description) {
+        return description != null && (description.equals("Card payment")
+                || description.contains("Split payment")
+                || description.contains("withdrawal")
+                || description.equals("Interest rate income"));
     }
 
     /**
@@ -396,6 +535,127 @@ public final class Transaction {
         return commerciant;
     }
 
+    /**
+     * Checks if the transaction is fully described by its timestamp, type, amount
+     * and commerciant, so a ledger can store it in columns and rebuild it later.
+     *
+     * @return true if no other field is set, false otherwise
+     */
+    boolean isCompact() {
+        return !type.isFormatted() && type != TransactionType.OTHER
+                && type != TransactionType.TRANSFER
+                && (!hasAmount || !Double.isNaN(amount))
+                && amountCurrency == null && amountText == null
+                && senderIBAN == null && receiverIBAN == null && accountIBAN == null
+                && transferType == null && account == null && card == null
+                && cardHolder == null && currency == null && involvedAccounts == null
+                && newPlanType == null && splitPaymentType == null && amountForUsers == null
+                && classicAccountIBAN == null && savingsAccountIBAN == null && error == null
+                && description == type.describe();
+    }
+
+    /**
+     * Writes the transaction to a snapshot.
+     *
+     * @param output the snapshot being written
+     */
+    void writeTo(final SnapshotOutput output) {
+        output.writeInt(timestamp);
+        output.writeInt(type.ordinal());
+        boolean describedByType = !type.isFormatted() && description == type.describe();
+        output.writeBoolean(describedByType);
+        if (!describedByType) {
+            output.writeString(getDescription());
+        }
+        output.writeBoolean(hasAmount);
+        output.writeDouble(amount);
+        output.writeString(amountCurrency);
+        output.writeString(amountText);
+        output.writeString(senderIBAN);
+        output.writeString(receiverIBAN);
+        output.writeString(accountIBAN);
+        output.writeString(transferType);
+        output.writeString(commerciant);
+        output.writeString(account);
+        output.writeString(card);
+        output.writeString(cardHolder);
+        output.writeString(currency);
+        output.writeInt(involvedAccounts == null ? -1 : involvedAccounts.size());
+        if (involvedAccounts != null) {
+            for (String involvedAccount : involvedAccounts) {
+                output.writeString(involvedAccount);
+            }
+        }
+        output.writeString(newPlanType);
+        output.writeString(splitPaymentType);
+        output.writeInt(amountForUsers == null ? -1 : amountForUsers.size());
+        if (amountForUsers != null) {
+            for (Double amountForUser : amountForUsers) {
+                output.writeDouble(amountForUser);
+            }
+        }
+        output.writeString(classicAccountIBAN);
+        output.writeString(savingsAccountIBAN);
+        output.writeString(error);
+    }
+
+    /**
+     * Reads a transaction written by {@link #writeTo}.
+     *
+     * @param input the snapshot being read
+     * @return the transaction
+     */
+    static Transaction readFrom(final SnapshotInput input) {
+        Builder builder = new Builder()
+                .timestamp(input.readInt())
+                .type(TransactionType.values()[input.readInt()]);
+        if (!input.readBoolean()) {
+            builder.description(input.readString());
+        }
+        boolean hasAmount = input.readBoolean();
+        double amount = input.readDouble();
+        String amountCurrency = input.readString();
+        String amountText = input.readString();
+        if (hasAmount && amountText != null) {
+            builder.amount(amountText);
+        } else if (hasAmount && amountCurrency != null) {
+            builder.amount(amount, amountCurrency);
+        } else if (hasAmount) {
+            builder.amount(amount);
+        }
+        builder.senderIBAN(input.readString())
+                .receiverIBAN(input.readString())
+                .accountIBAN(input.readString())
+                .transferType(input.readString())
+                .commerciant(input.readString())
+                .account(input.readString())
+                .card(input.readString())
+                .cardHolder(input.readString())
+                .currency(input.readString());
+        int involvedAccountCount = input.readInt();
+        if (involvedAccountCount >= 0) {
+            List<String> involved = new ArrayList<>(involvedAccountCount);
+            for (int i = 0; i < involvedAccountCount; i++) {
+                involved.add(input.readString());
+            }
+            builder.involvedAccounts(involved);
+        }
+        builder.newPlanType(input.readString())
+                .splitPaymentType(input.readString());
+        int amountForUserCount = input.readInt();
+        if (amountForUserCount >= 0) {
+            List<Double> amounts = new ArrayList<>(amountForUserCount);
+            for (int i = 0; i < amountForUserCount; i++) {
+                amounts.add(input.readDouble());
+            }
+            builder.amountForUsers(amounts);
+        }
+        return builder.classicAccountIBAN(input.readString())
+                .savingsAccountIBAN(input.readString())
+                .error(input.readString())
+                .build();
+    }
+
     /**
      * Converts the transaction to a JSON object.
      *
@@ -405,18 +665,16 @@ public final class Transaction {
     public ObjectNode toJson(final ObjectMapper objectMapper) {
         ObjectNode transactionNode = objectMapper.createObjectNode();
         transactionNode.put("timestamp", timestamp);
-        transactionNode.put("description", description);
+        transactionNode.put("description", getDescription());
         if (senderIBAN != null) {
             transactionNode.put("senderIBAN", senderIBAN);
         }
         if (receiverIBAN != null) {
             transactionNode.put("receiverIBAN", receiverIBAN);
         }
-        if (amount != null) {
-            if (description.equals("Card payment") || description.contains("Split payment")
-                    || description.contains("withdrawal")
-                    || description.equals("Interest rate income")) {
-                transactionNode.put("amount", Double.parseDouble(amount));
+        if (hasAmount) {
+            if (amountPrintedAsText) {
+                transactionNode.put("amount", getAmountText());
             } else {
                 transactionNode.put("amount", amount);
             }
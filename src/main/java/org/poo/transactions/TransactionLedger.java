@@ -0,0 +1,293 @@
+package org.poo.transactions;
+
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The transactions of an account or of a user, stored column by column.
+ * <p>
+ * The timestamp, type, amount and commerciant of every transaction are kept in
+ * primitive columns, with the commerciants encoded as ids into a dictionary.
+ * Transactions described entirely by those columns (card payments, frozen
+ * cards, insufficient funds...) are not kept as objects at all and are only
+ * rebuilt when they are serialized. The other ones keep a reference to the
+ * original object in a details column.
+ * </p>
+ * <p>
+ * Commands arrive in timestamp order, so the rows are normally sorted by
+ * timestamp and time windows are found by binary search. If a row is added
+ * out of order, an index of the rows sorted by timestamp is built the next
+ * time it is needed and kept until the next row is added.
+ * </p>
+ */
+public final class TransactionLedger {
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int NO_COMMERCIANT = -1;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private int size;
+    private int[] timestamps = new int[DEFAULT_CAPACITY];
+    private byte[] types = new byte[DEFAULT_CAPACITY];
+    private double[] amounts = new double[DEFAULT_CAPACITY];
+    private int[] commerciants = new int[DEFAULT_CAPACITY];
+    private Transaction[] details = new Transaction[DEFAULT_CAPACITY];
+    private final List<String> commerciantNames = new ArrayList<>();
+    private final Map<String, Integer> commerciantIds = new HashMap<>();
+    private boolean sortedByTimestamp = true;
+    private int[] timestampOrder;
+
+    /**
+     * Adds a transaction at the end of the ledger.
+     *
+     * @param transaction the transaction to be added
+     */
+    public void add(final Transaction transaction) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        if (size > 0 && transaction.getTimestamp() < timestamps[size - 1]) {
+            sortedByTimestamp = false;
+        }
+        timestamps[size] = transaction.getTimestamp();
+        types[size] = (byte) transaction.getType().ordinal();
+        amounts[size] = transaction.getAmount();
+        commerciants[size] = encodeCommerciant(transaction.getCommerciant());
+        details[size] = transaction.isCompact() ? null : transaction;
+        size++;
+        timestampOrder = null;
+    }
+
+    /**
+     * Getter for the number of transactions.
+     *
+     * @return the number of transactions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the timestamp of a transaction.
+     *
+     * @param row the position of the transaction
+     * @return the timestamp
+     */
+    public int getTimestamp(final int row) {
+        return timestamps[row];
+    }
+
+    /**
+     * Gets the type of a transaction.
+     *
+     * @param row the position of the transaction
+     * @return the type
+     */
+    public TransactionType getType(final int row) {
+        return TYPES[types[row]];
+    }
+
+    /**
+     * Gets the amount of a transaction.
+     *
+     * @param row the position of the transaction
+     * @return the amount, or NaN if the transaction has no numeric amount
+     */
+    public double getAmount(final int row) {
+        return amounts[row];
+    }
+
+    /**
+     * Gets the commerciant of a transaction.
+     *
+     * @param row the position of the transaction
+     * @return the commerciant, or null if the transaction has none
+     */
+    public String getCommerciant(final int row) {
+        int id = commerciants[row];
+        return id == NO_COMMERCIANT ? null : commerciantNames.get(id);
+    }
+
+    /**
+     * Gets a transaction, rebuilding it from the columns if needed.
+     *
+     * @param row the position of the transaction
+     * @return the transaction
+     */
+    public Transaction get(final int row) {
+        if (details[row] != null) {
+            return details[row];
+        }
+        Transaction.Builder builder = new Transaction.Builder()
+                .timestamp(timestamps[row])
+                .type(getType(row))
+                .commerciant(getCommerciant(row));
+        if (!Double.isNaN(amounts[row])) {
+            builder.amount(amounts[row]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes the transactions to a snapshot, the compact ones as their columns
+     * and the other ones in full.
+     *
+     * @param output the snapshot being written
+     */
+    public void writeTo(final SnapshotOutput output) {
+        output.writeInt(size);
+        for (int row = 0; row < size; row++) {
+            output.writeBoolean(details[row] == null);
+            if (details[row] == null) {
+                output.writeInt(timestamps[row]);
+                output.writeInt(types[row]);
+                output.writeDouble(amounts[row]);
+                output.writeString(getCommerciant(row));
+            } else {
+                details[row].writeTo(output);
+            }
+        }
+    }
+
+    /**
+     * Adds the transactions read from a snapshot written by {@link #writeTo}.
+     *
+     * @param input the snapshot being read
+     */
+    public void readFrom(final SnapshotInput input) {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            if (!input.readBoolean()) {
+                add(Transaction.readFrom(input));
+                continue;
+            }
+            Transaction.Builder builder = new Transaction.Builder()
+                    .timestamp(input.readInt())
+                    .type(TYPES[input.readInt()]);
+            double amount = input.readDouble();
+            if (!Double.isNaN(amount)) {
+                builder.amount(amount);
+            }
+            add(builder.commerciant(input.readString()).build());
+        }
+    }
+
+    /**
+     * Gets the positions of the transactions ordered by timestamp. Transactions
+     * with the same timestamp keep the order they were added in.
+     *
+     * @return the positions of the transactions
+     */
+    public int[] rowsByTimestamp() {
+        if (sortedByTimestamp) {
+            return consecutiveRows(0, size);
+        }
+        return timestampOrder().clone();
+    }
+
+    /**
+     * Gets the positions of the transactions made between two timestamps, in the
+     * order they were added in.
+     *
+     * @param startTimestamp the first timestamp of the window
+     * @param endTimestamp the last timestamp of the window
+     * @return the positions of the transactions in the window
+     */
+    public int[] rowsBetween(final int startTimestamp, final int endTimestamp) {
+        if (startTimestamp > endTimestamp) {
+            return new int[0];
+        }
+        if (sortedByTimestamp) {
+            int from = firstRowAfter(null, startTimestamp - 1L);
+            int to = firstRowAfter(null, endTimestamp);
+            return consecutiveRows(from, to);
+        }
+        int[] order = timestampOrder();
+        int from = firstRowAfter(order, startTimestamp - 1L);
+        int to = firstRowAfter(order, endTimestamp);
+        int[] rows = Arrays.copyOfRange(order, from, to);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /**
+     * Finds the first position, in timestamp order, whose timestamp is greater
+     * than the given one.
+     *
+     * @param order the rows in timestamp order, or null if the rows are already sorted
+     * @param timestamp the timestamp
+     * @return the position
+     */
+    private int firstRowAfter(final int[] order, final long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int row = order == null ? middle : order[middle];
+            if (timestamps[row] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the rows sorted by timestamp, building the index if rows were added since.
+     *
+     * @return the rows in timestamp order
+     */
+    private int[] timestampOrder() {
+        if (timestampOrder == null) {
+            // each key holds the timestamp in its high half and the row in its
+            // low half, so sorting the keys orders the rows by timestamp and
+            // keeps rows with the same timestamp in the order they were added
+            long[] keys = new long[size];
+            for (int row = 0; row < size; row++) {
+                keys[row] = (long) timestamps[row] << Integer.SIZE | row;
+            }
+            Arrays.sort(keys);
+            timestampOrder = new int[size];
+            for (int i = 0; i < size; i++) {
+                timestampOrder[i] = (int) keys[i];
+            }
+        }
+        return timestampOrder;
+    }
+
+    private static int[] consecutiveRows(final int from, final int to) {
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = from + i;
+        }
+        return rows;
+    }
+
+    private int encodeCommerciant(final String commerciant) {
+        if (commerciant == null) {
+            return NO_COMMERCIANT;
+        }
+        Integer id = commerciantIds.get(commerciant);
+        if (id == null) {
+            id = commerciantNames.size();
+            commerciantNames.add(commerciant);
+            commerciantIds.put(commerciant, id);
+        }
+        return id;
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        types = Arrays.copyOf(types, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        commerciants = Arrays.copyOf(commerciants, capacity);
+        details = Arrays.copyOf(details, capacity);
+    }
+}
@@ -1,19 +1,24 @@
 package org.poo.transactions;
 
 import org.poo.banksystem.Account;
+import org.poo.banksystem.AccountDirectory;
 import org.poo.banksystem.User;
-import java.util.List;
+import org.poo.banksystem.UserDirectory;
 
 public class TransactionManager {
-    private final List<User> users;
+    private final UserDirectory userDirectory;
+    private final AccountDirectory accountDirectory;
 
     /**
      * Constructor for TransactionManager.
      *
-     * @param users the users
+     * @param userDirectory the user directory used to resolve emails
+     * @param accountDirectory the account directory used to resolve IBANs
      */
-    public TransactionManager(final List<User> users) {
-        this.users = users;
+    public TransactionManager(final UserDirectory userDirectory,
+                              final AccountDirectory accountDirectory) {
+        this.userDirectory = userDirectory;
+        this.accountDirectory = accountDirectory;
     }
 
     /**
@@ -23,11 +28,9 @@ public class TransactionManager {
      * @param transaction the transaction to be added
      */
     public void addTransactionToUser(final String email, final Transaction transaction) {
-        for (User user : users) {
-            if (user.getEmail().equals(email)) {
-                user.addTransaction(transaction);
-                break;
-            }
+        User user = userDirectory.find(email);
+        if (user != null) {
+            user.addTransaction(transaction);
         }
     }
 
@@ -40,15 +43,46 @@ public class TransactionManager {
      */
     public void addTransactionToAccount(final String email, final String iban,
                                         final Transaction transaction) {
-        for (User user : users) {
-            if (user.getEmail().equals(email)) {
-                for (Account account : user.getAccounts()) {
-                    if (account.getIBAN().equals(iban)) {
-                        account.addTransaction(transaction);
-                        break;
-                    }
-                }
-            }
+        User user = userDirectory.find(email);
+        if (user == null) {
+            return;
         }
+        Account account = accountDirectory.findAccountHeldBy(iban, user);
+        if (account != null) {
+            account.addTransaction(transaction);
+        }
+    }
+
+    /**
+     * Adds a transaction to an already resolved user.
+     *
+     * @param user the user
+     * @param transaction the transaction to be added
+     */
+    public void addTransactionToUser(final User user, final Transaction transaction) {
+        user.addTransaction(transaction);
+    }
+
+    /**
+     * Adds a transaction to an already resolved account.
+     *
+     * @param account the account
+     * @param transaction the transaction to be added
+     */
+    public void addTransactionToAccount(final Account account, final Transaction transaction) {
+        account.addTransaction(transaction);
+    }
+
+    /**
+     * Adds a transaction both to a user and to one of their accounts.
+     *
+     * @param user the user
+     * @param account the account of the user
+     * @param transaction the transaction to be added
+     */
+    public void addTransaction(final User user, final Account account,
+                               final Transaction transaction) {
+        user.addTransaction(transaction);
+        account.addTransaction(transaction);
     }
 }
@@ -0,0 +1,80 @@
+package org.poo.transactions;
+
+/**
+ * The kinds of transactions recorded by the bank.
+ * <p>
+ * Each type knows its description, either as a constant or as a format filled
+ * in with the arguments given to the builder, and whether the amount of the
+ * transaction is printed as a number or as text.
+ * </p>
+ */
+public enum TransactionType {
+    ACCOUNT_CREATED("New account created", false),
+    ACCOUNT_NOT_DELETED("Account couldn't be deleted - there are funds remaining", false),
+    CARD_CREATED("New card created", false),
+    CARD_DESTROYED("The card has been destroyed", false),
+    CARD_FROZEN("The card is frozen", false),
+    CARD_ALREADY_USED("Card has already been used", false),
+    CARD_PAYMENT("Card payment", true),
+    CASH_WITHDRAWAL("Cash withdrawal of %s", true),
+    INSUFFICIENT_FUNDS("Insufficient funds", false),
+    MINIMUM_FUNDS_REACHED("You have reached the minimum amount of funds", false),
+    MINIMUM_FUNDS_CARD_FROZEN("You have reached the minimum amount of funds,"
+            + " the card will be frozen", false),
+    TRANSFER(null, false),
+    SPLIT_PAYMENT("Split payment of %.2f %s", true),
+    INTEREST_INCOME("Interest rate income", true),
+    INTEREST_RATE_CHANGED("Interest rate of the account changed to %s", false),
+    SAVINGS_WITHDRAWAL("Savings withdrawal", true),
+    NOT_SAVINGS_ACCOUNT("Account is not of type savings.", false),
+    MINIMUM_AGE_NOT_MET("You don't have the minimum age required.", false),
+    NO_CLASSIC_ACCOUNT("You do not have a classic account.", false),
+    UPGRADE_PLAN("Upgrade plan", false),
+    PLAN_ALREADY_OWNED("The user already has the %s plan.", false),
+    PLAN_DOWNGRADE("You cannot downgrade your plan.", false),
+    /**
+     * Transactions built without a type; their description is set explicitly.
+     */
+    OTHER(null, false);
+
+    private final String description;
+    private final boolean amountPrintedAsNumber;
+    private final boolean formatted;
+
+    TransactionType(final String description, final boolean amountPrintedAsNumber) {
+        this.description = description;
+        this.amountPrintedAsNumber = amountPrintedAsNumber;
+        this.formatted = description != null && description.indexOf('%') >= 0;
+    }
+
+    /**
+     * Gets the description of the transactions of this type.
+     *
+     * @param arguments the arguments of the description, for the types that have some
+     * @return the description, or null if the type has no fixed description
+     */
+    public String describe(final Object... arguments) {
+        if (!formatted) {
+            return description;
+        }
+        return String.format(description, arguments);
+    }
+
+    /**
+     * Checks if the description of this type is filled in with arguments.
+     *
+     * @return true if the description is a format, false otherwise
+     */
+    public boolean isFormatted() {
+        return formatted;
+    }
+
+    /**
+     * Checks if the amount of the transactions of this type is printed as a number.
+     *
+     * @return true if the amount is printed as a number, false if it is printed as text
+     */
+    public boolean isAmountPrintedAsNumber() {
+        return amountPrintedAsNumber;
+    }
+}
@@ -0,0 +1,111 @@
+package org.poo.utils;
+
+import java.util.Random;
+
+/**
+ * Generates the IBANs and card numbers of one bank.
+ * <p>
+ * Every generator starts from the same seeds as the static generators it
+ * replaces and draws its digits in the same order, so it produces the same
+ * sequences, and banks with their own generators can run side by side in the
+ * same process. The digits are written into a buffer holding the fixed parts
+ * of the value, which is then copied into the returned string.
+ * </p>
+ */
+public final class IdGenerator {
+    private static final int IBAN_SEED = 1;
+    private static final int CARD_SEED = 2;
+    private static final int DIGIT_BOUND = 10;
+
+    private final char[] iban = new char[Utils.IBAN_LENGTH];
+    private final char[] cardNumber = new char[Utils.DIGIT_GENERATION];
+    private Random ibanRandom;
+    private Random cardRandom;
+    private long generatedIBANs;
+    private long generatedCardNumbers;
+
+    /**
+     * Constructor for IdGenerator.
+     */
+    public IdGenerator() {
+        Utils.RO_STR.getChars(0, Utils.RO_STR.length(), iban, 0);
+        Utils.POO_STR.getChars(0, Utils.POO_STR.length(), iban, 2 * Utils.RO_STR.length());
+        reset();
+    }
+
+    /**
+     * Generates an IBAN.
+     *
+     * @return the IBAN
+     */
+    public String nextIBAN() {
+        int bankCodeStart = 2 * Utils.RO_STR.length();
+        fillDigits(ibanRandom, iban, Utils.RO_STR.length(), bankCodeStart);
+        fillDigits(ibanRandom, iban, bankCodeStart + Utils.POO_STR.length(), iban.length);
+        generatedIBANs++;
+        return new String(iban);
+    }
+
+    /**
+     * Generates a card number.
+     *
+     * @return the card number
+     */
+    public String nextCardNumber() {
+        fillDigits(cardRandom, cardNumber, 0, cardNumber.length);
+        generatedCardNumbers++;
+        return new String(cardNumber);
+    }
+
+    /**
+     * Getter for the number of IBANs generated so far.
+     *
+     * @return the number of IBANs
+     */
+    public long getGeneratedIBANs() {
+        return generatedIBANs;
+    }
+
+    /**
+     * Getter for the number of card numbers generated so far.
+     *
+     * @return the number of card numbers
+     */
+    public long getGeneratedCardNumbers() {
+        return generatedCardNumbers;
+    }
+
+    /**
+     * Starts the sequences over.
+     */
+    public void reset() {
+        ibanRandom = new Random(IBAN_SEED);
+        cardRandom = new Random(CARD_SEED);
+        generatedIBANs = 0;
+        generatedCardNumbers = 0;
+    }
+
+    /**
+     * Starts the sequences over and moves them past the given number of values,
+     * so they continue the sequences of a previous run.
+     *
+     * @param ibans       the number of IBANs already generated
+     * @param cardNumbers the number of card numbers already generated
+     */
+    public void restore(final long ibans, final long cardNumbers) {
+        reset();
+        for (long i = 0; i < ibans; i++) {
+            nextIBAN();
+        }
+        for (long i = 0; i < cardNumbers; i++) {
+            nextCardNumber();
+        }
+    }
+
+    private static void fillDigits(final Random random, final char[] buffer, final int from,
+                                   final int to) {
+        for (int i = from; i < to; i++) {
+            buffer[i] = (char) ('0' + random.nextInt(DIGIT_BOUND));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.poo.utils;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hash map with primitive, non-negative long keys.
+ * <p>
+ * Uses open addressing with linear probing, so lookups don't box the key
+ * and the table is stored in two flat arrays instead of one node per entry.
+ * </p>
+ *
+ * @param <V> the type of the values
+ */
+public final class LongHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final long EMPTY = -1L;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int HASH_SHIFT = 32;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * Constructor for LongHashMap.
+     */
+    public LongHashMap() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(final long key) {
+        long hash = key * GOLDEN_RATIO;
+        return (int) (hash ^ (hash >>> HASH_SHIFT)) & mask;
+    }
+
+    private int indexOf(final long key) {
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the value associated with a key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is not present
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        if (key < 0) {
+            return null;
+        }
+        int index = indexOf(key);
+        return index == -1 ? null : (V) values[index];
+    }
+
+    /**
+     * Associates a value with a key, replacing the previous value.
+     *
+     * @param key   the key, must be non-negative
+     * @param value the value
+     */
+    public void put(final long key, final V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative key");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int index = slot(key);
+        while (keys[index] != EMPTY) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Removes a key from the map.
+     *
+     * @param key the key
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(final long key) {
+        if (key < 0) {
+            return null;
+        }
+        int hole = indexOf(key);
+        if (hole == -1) {
+            return null;
+        }
+        V removed = (V) values[hole];
+        // shift back the entries of the probe chain so no tombstones are needed
+        int index = hole;
+        while (true) {
+            index = (index + 1) & mask;
+            if (keys[index] == EMPTY) {
+                break;
+            }
+            int home = slot(keys[index]);
+            boolean reachable = hole <= index
+                    ? hole < home && home <= index
+                    : hole < home || home <= index;
+            if (!reachable) {
+                keys[hole] = keys[index];
+                values[hole] = values[index];
+                hole = index;
+            }
+        }
+        keys[hole] = EMPTY;
+        values[hole] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Getter for the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Performs an action for every value in the map, in no particular order.
+     *
+     * @param action the action to be performed
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(final Consumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    private void resize(final int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = slot(oldKeys[i]);
+                while (keys[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+}
@@ -1,61 +1,38 @@
 package org.poo.utils;
 
-import java.util.Random;
-
 public final class Utils {
     private Utils() {
         // Checkstyle error free constructor
     }
 
-    private static final int IBAN_SEED = 1;
-    private static final int CARD_SEED = 2;
-    private static final int DIGIT_BOUND = 10;
-    private static final int DIGIT_GENERATION = 16;
-    private static final String RO_STR = "RO";
-    private static final String POO_STR = "POOB";
-
-
-    private static Random ibanRandom = new Random(IBAN_SEED);
-    private static Random cardRandom = new Random(CARD_SEED);
+    static final int DIGIT_GENERATION = 16;
+    static final String RO_STR = "RO";
+    static final String POO_STR = "POOB";
+    static final int IBAN_LENGTH = 2 * RO_STR.length() + POO_STR.length()
+            + DIGIT_GENERATION;
 
     /**
-     * Utility method for generating an IBAN code.
+     * Utility method for checking if a string has the layout of a generated IBAN.
      *
-     * @return the IBAN as String
+     * @param value the string to be checked
+     * @return true if the string looks like an IBAN, false otherwise
      */
-    public static String generateIBAN() {
-        StringBuilder sb = new StringBuilder(RO_STR);
-        for (int i = 0; i < RO_STR.length(); i++) {
-            sb.append(ibanRandom.nextInt(DIGIT_BOUND));
+    public static boolean isIBAN(final String value) {
+        if (value.length() != IBAN_LENGTH || !value.startsWith(RO_STR)) {
+            return false;
         }
-
-        sb.append(POO_STR);
-        for (int i = 0; i < DIGIT_GENERATION; i++) {
-            sb.append(ibanRandom.nextInt(DIGIT_BOUND));
+        int bankCodeStart = 2 * RO_STR.length();
+        if (!value.startsWith(POO_STR, bankCodeStart)) {
+            return false;
         }
-
-        return sb.toString();
-    }
-
-    /**
-     * Utility method for generating a card number.
-     *
-     * @return the card number as String
-     */
-    public static String generateCardNumber() {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < DIGIT_GENERATION; i++) {
-            sb.append(cardRandom.nextInt(DIGIT_BOUND));
+        for (int i = RO_STR.length(); i < value.length(); i++) {
+            if (i == bankCodeStart) {
+                i += POO_STR.length();
+            }
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
         }
-
-        return sb.toString();
-    }
-
-    /**
-     * Resets the seeds between runs.
-     */
-    public static void resetRandom() {
-        ibanRandom = new Random(IBAN_SEED);
-        cardRandom = new Random(CARD_SEED);
+        return true;
     }
 }
@@ -0,0 +1,117 @@
+package org.poo.banksystem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput of transfers guarded by {@link AccountLocks} as the number of
+ * threads grows. Only run when the {@code benchmark} system property is set,
+ * with {@code mvn test -Dtest=AccountLocksBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class AccountLocksBenchmarkTest {
+    private static final int ACCOUNTS = 1024;
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32};
+    private static final int[] STRIPES = {1, 256};
+    private static final int TRANSFERS = 2_000_000;
+    private static final int ROUNDS = 3;
+    private static final int MAX_AMOUNT = 300;
+    private static final double INITIAL_BALANCE = 1000.0;
+    private static final long TIMEOUT_SECONDS = 300;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Prints the best of a few rounds of transfers per second for every number
+     * of threads, with one stripe, which makes every transfer wait for every
+     * other, and with the default number of stripes. The same transfers are
+     * split between the threads, and no money may appear or vanish.
+     *
+     * @throws Exception if a thread fails or the transfers time out
+     */
+    @Test
+    void transfersScaleWithThreads() throws Exception {
+        System.out.printf("%d CPUs, %d accounts, %d transfers%n",
+                Runtime.getRuntime().availableProcessors(), ACCOUNTS, TRANSFERS);
+        System.out.printf("%8s %8s %16s%n", "stripes", "threads", "transfers/s");
+        for (int stripes : STRIPES) {
+            // a round that is not reported, so the code is compiled first
+            run(stripes, THREADS[THREADS.length - 1]);
+            for (int threads : THREADS) {
+                double best = 0;
+                for (int round = 0; round < ROUNDS; round++) {
+                    best = Math.max(best, run(stripes, threads));
+                }
+                System.out.printf("%8d %8d %16.0f%n", stripes, threads, best);
+            }
+        }
+    }
+
+    private static double run(final int stripes, final int threads) throws Exception {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(new Account("RO" + i, INITIAL_BALANCE, "RON", "classic"));
+        }
+        AccountLocks locks = new AccountLocks(stripes);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long elapsed;
+        try {
+            List<Future<?>> transfers = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                long seed = thread;
+                transfers.add(pool.submit(() -> {
+                    start.await();
+                    transferRandomly(accounts, locks, new Random(seed), TRANSFERS / threads);
+                    return null;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Future<?> transfer : transfers) {
+                transfer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            elapsed = System.nanoTime() - started;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double sum = 0;
+        for (Account account : accounts) {
+            sum += account.getBalance();
+        }
+        assertEquals(ACCOUNTS * INITIAL_BALANCE, sum, 0.0);
+        return TRANSFERS / (elapsed / NANOS_PER_SECOND);
+    }
+
+    private static void transferRandomly(final List<Account> accounts,
+                                         final AccountLocks locks, final Random random,
+                                         final int count) {
+        for (int i = 0; i < count; i++) {
+            Account from = accounts.get(random.nextInt(ACCOUNTS));
+            Account to = accounts.get(random.nextInt(ACCOUNTS));
+            if (from == to) {
+                continue;
+            }
+            double amount = 1 + random.nextInt(MAX_AMOUNT);
+            AccountLocks.Held held = locks.lock(from.getIBAN(), to.getIBAN());
+            try {
+                if (from.tryPay(amount)) {
+                    to.addFunds(amount);
+                }
+            } finally {
+                held.close();
+            }
+        }
+    }
+}
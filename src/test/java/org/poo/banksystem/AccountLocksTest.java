@@ -0,0 +1,118 @@
+package org.poo.banksystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests for {@link AccountLocks}.
+ */
+class AccountLocksTest {
+    private static final int ACCOUNTS = 32;
+    private static final int STRIPES = 4;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS = 50_000;
+    private static final int MAX_AMOUNT = 300;
+    private static final double INITIAL_BALANCE = 1000.0;
+    private static final long TIMEOUT_SECONDS = 60;
+
+    /**
+     * Threads move money between random pairs of accounts, locking them in
+     * both orders and on shared stripes, while an auditor locks every account
+     * and sums the balances. No money may appear or vanish, neither while the
+     * transfers run nor after, and no transfer may deadlock.
+     *
+     * @throws Exception if a thread fails or the transfers time out
+     */
+    @Test
+    void concurrentTransfersConserveMoney() throws Exception {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(new Account("RO" + i, INITIAL_BALANCE, "RON", "classic"));
+        }
+        double expected = ACCOUNTS * INITIAL_BALANCE;
+        AccountLocks locks = new AccountLocks(STRIPES);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        Queue<Double> audits = new ConcurrentLinkedQueue<>();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            List<Future<?>> transfers = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                long seed = thread;
+                transfers.add(pool.submit(() -> {
+                    start.await();
+                    transferRandomly(accounts, locks, new Random(seed));
+                    return null;
+                }));
+            }
+            Future<?> auditor = pool.submit(() -> {
+                start.await();
+                do {
+                    audits.add(sumLocked(accounts, locks));
+                } while (!done.get());
+                return null;
+            });
+            start.countDown();
+            for (Future<?> transfer : transfers) {
+                transfer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            auditor.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertFalse(audits.isEmpty());
+        for (double audit : audits) {
+            assertEquals(expected, audit, 0.0);
+        }
+        assertEquals(expected, sumLocked(accounts, locks), 0.0);
+    }
+
+    private static void transferRandomly(final List<Account> accounts,
+                                         final AccountLocks locks, final Random random) {
+        for (int i = 0; i < TRANSFERS; i++) {
+            Account from = accounts.get(random.nextInt(ACCOUNTS));
+            Account to = accounts.get(random.nextInt(ACCOUNTS));
+            if (from == to) {
+                continue;
+            }
+            double amount = 1 + random.nextInt(MAX_AMOUNT);
+            AccountLocks.Held held = locks.lock(from.getIBAN(), to.getIBAN());
+            try {
+                if (from.tryPay(amount)) {
+                    to.addFunds(amount);
+                }
+            } finally {
+                held.close();
+            }
+        }
+    }
+
+    private static double sumLocked(final List<Account> accounts, final AccountLocks locks) {
+        AccountLocks.Held held = locks.lockAccounts(accounts);
+        try {
+            double sum = 0;
+            for (Account account : accounts) {
+                sum += account.getBalance();
+            }
+            return sum;
+        } finally {
+            held.close();
+        }
+    }
+}
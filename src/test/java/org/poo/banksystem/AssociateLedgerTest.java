@@ -0,0 +1,51 @@
+package org.poo.banksystem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link AssociateLedger}.
+ */
+class AssociateLedgerTest {
+    private static final int ASSOCIATES = 40;
+    private static final int UPDATES = 2000;
+    private static final long SEED = 4;
+    private static final int MAGNITUDES = 64;
+    private static final double HALF = 0.5;
+
+    /**
+     * The totals are summed in the order the associates first appeared, as when
+     * they were kept in a LinkedHashMap, so the sum has exactly the same bits.
+     * With this seed, summing the same totals in another order gives other bits.
+     */
+    @Test
+    void totalKeepsTheOrderOfTheMapItReplaced() {
+        User[] associates = new User[ASSOCIATES];
+        for (int i = 0; i < ASSOCIATES; i++) {
+            associates[i] = new User("First" + i, "Last" + i, "user" + i + "@bank.com",
+                    "2000-01-01", "engineer");
+        }
+        AssociateLedger ledger = new AssociateLedger();
+        Map<User, Double> spendings = new LinkedHashMap<>();
+        Random random = new Random(SEED);
+        for (int timestamp = 0; timestamp < UPDATES; timestamp++) {
+            User user = associates[random.nextInt(ASSOCIATES)];
+            double amount = (random.nextDouble() - HALF)
+                    * Math.pow(2, random.nextInt(MAGNITUDES));
+            ledger.add(user, timestamp, amount);
+            spendings.put(user, spendings.getOrDefault(user, 0.0) + amount);
+        }
+
+        double expected = spendings.values().stream().mapToDouble(Double::doubleValue).sum();
+        assertEquals(expected, ledger.total(), 0.0);
+        assertEquals(expected, ledger.total(0, UPDATES), 0.0);
+        for (User user : associates) {
+            assertEquals(spendings.getOrDefault(user, 0.0), ledger.get(user), 0.0);
+        }
+    }
+}
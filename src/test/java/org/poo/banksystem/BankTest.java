@@ -0,0 +1,93 @@
+package org.poo.banksystem;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.poo.commands.CommandType;
+import org.poo.fileio.ArrayNodeOutput;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link Bank}.
+ */
+class BankTest {
+    private static final double OTHER_AMOUNT = 40.0;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Two banks that open split payments at the same timestamp must each keep
+     * their own, so a bank gives the same outputs whether another bank runs
+     * next to it or not.
+     *
+     * @throws IOException if the input cannot be read
+     */
+    @Test
+    void banksKeepTheirOwnSplitPayments() throws IOException {
+        ArrayNodeOutput alone = new ArrayNodeOutput(objectMapper.createArrayNode());
+        new Bank(objectMapper, readInput()).executeCommands(alone);
+
+        ObjectInput input = readInput();
+        Bank first = new Bank(objectMapper, input);
+        Bank second = new Bank(objectMapper, readInput());
+        ArrayNodeOutput firstOutput = new ArrayNodeOutput(objectMapper.createArrayNode());
+        ArrayNodeOutput secondOutput = new ArrayNodeOutput(objectMapper.createArrayNode());
+        for (CommandInput command : input.getCommands()) {
+            first.executeCommand(command, firstOutput);
+            CommandInput other = command.copy();
+            if (other.getCommandType() == CommandType.SPLIT_PAYMENT) {
+                other.setAmount(OTHER_AMOUNT);
+            }
+            second.executeCommand(other, secondOutput);
+        }
+
+        assertEquals(alone.getArray(), firstOutput.getArray());
+    }
+
+    /**
+     * A bank restored from a snapshot taken while a split payment is pending
+     * goes on exactly as the bank that took it.
+     *
+     * @throws IOException if the snapshot cannot be written or read
+     */
+    @Test
+    void snapshotRestoresPendingSplitPayments() throws IOException {
+        ObjectInput input = readInput();
+        CommandInput[] commands = input.getCommands();
+        Bank original = new Bank(objectMapper, input);
+        ArrayNodeOutput ignored = new ArrayNodeOutput(objectMapper.createArrayNode());
+        int next = 0;
+        while (commands[next].getCommandType() != CommandType.ACCEPT_SPLIT_PAYMENT) {
+            original.executeCommand(commands[next++], ignored);
+        }
+        Path snapshot = directory.resolve("bank.snapshot");
+        original.writeSnapshot(snapshot).join();
+
+        Bank restored = new Bank(objectMapper, readInput());
+        restored.loadSnapshot(snapshot);
+        ArrayNodeOutput originalOutput = new ArrayNodeOutput(objectMapper.createArrayNode());
+        ArrayNodeOutput restoredOutput = new ArrayNodeOutput(objectMapper.createArrayNode());
+        for (int i = next; i < commands.length; i++) {
+            original.executeCommand(commands[i], originalOutput);
+            restored.executeCommand(commands[i], restoredOutput);
+        }
+
+        assertEquals(originalOutput.getArray(), restoredOutput.getArray());
+    }
+
+    private ObjectInput readInput() throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream("splitPayment.json")) {
+            return objectMapper.readValue(stream, ObjectInput.class);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.poo.banksystem;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.poo.fileio.ArrayNodeOutput;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link CommandScheduler}.
+ */
+class CommandSchedulerTest {
+    private static final int USERS = 16;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS = 20_000;
+    private static final int MAX_AMOUNT = 300;
+    private static final double INITIAL_BALANCE = 1000.0;
+    private static final long SEED = 23;
+    private static final int TRANSFERS_PER_PRINT = 16;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Transfers between the accounts of students, who pay no fees, run on
+     * several threads must keep the money in the bank and leave every account
+     * as running them one after another does.
+     *
+     * @throws Exception if the input cannot be built
+     */
+    @Test
+    void parallelTransfersConserveMoney() throws Exception {
+        Bank sequential = openAccounts();
+        List<CommandInput> transfers = transfers(sequential, false);
+
+        Bank parallel = openAccounts();
+        ArrayNodeOutput parallelOutput = new ArrayNodeOutput(objectMapper.createArrayNode());
+        try (CommandScheduler scheduler =
+                     parallel.startParallelExecution(THREADS, parallelOutput)) {
+            for (CommandInput transfer : transfers) {
+                scheduler.submit(transfer);
+            }
+        }
+        ArrayNodeOutput sequentialOutput = new ArrayNodeOutput(objectMapper.createArrayNode());
+        for (CommandInput transfer : transfers) {
+            sequential.executeCommand(transfer, sequentialOutput);
+        }
+
+        ArrayNode parallelUsers = printUsers(parallel);
+        double total = 0;
+        for (JsonNode user : parallelUsers) {
+            total += user.get("accounts").get(0).get("balance").asDouble();
+        }
+        assertEquals(USERS * INITIAL_BALANCE, total, 0.0);
+        assertEquals(printUsers(sequential), parallelUsers);
+        assertEquals(sequentialOutput.getArray(), parallelOutput.getArray());
+    }
+
+    /**
+     * A snapshot taken while transfers are executed in parallel holds exactly
+     * the transfers submitted before it, however far the workers got, and the
+     * transfers submitted after it leave it alone. The transfers go around the
+     * users in a ring, so each one waits for the one before it, and the
+     * transactions of the first user are printed between them, so the workers
+     * are still busy with them when the snapshot is requested.
+     *
+     * @throws Exception if the input cannot be built or the snapshot cannot be
+     *                   written or read
+     */
+    @Test
+    void snapshotIsTakenAtABarrier() throws Exception {
+        Bank sequential = openAccounts();
+        List<CommandInput> transfers = transfers(sequential, true);
+        Path path = directory.resolve("bank.snapshot");
+
+        CommandInput print = command(objectMapper.createObjectNode()
+                .put("command", "printTransactions")
+                .put("email", email(0))
+                .put("timestamp", USERS + 1 + TRANSFERS));
+
+        Bank parallel = openAccounts();
+        CompletableFuture<Void> snapshot;
+        try (CommandScheduler scheduler =
+                     parallel.startParallelExecution(THREADS, ignoredOutput())) {
+            for (int i = 0; i < TRANSFERS / 2; i++) {
+                scheduler.submit(transfers.get(i));
+                if (i % TRANSFERS_PER_PRINT == 0) {
+                    scheduler.submit(print);
+                }
+            }
+            snapshot = parallel.writeSnapshot(path);
+            for (CommandInput transfer : transfers.subList(TRANSFERS / 2, TRANSFERS)) {
+                scheduler.submit(transfer);
+            }
+        }
+        snapshot.join();
+        for (CommandInput transfer : transfers.subList(0, TRANSFERS / 2)) {
+            sequential.executeCommand(transfer, ignoredOutput());
+        }
+
+        Bank restored = newBank();
+        restored.loadSnapshot(path);
+        assertEquals(printUsers(sequential), printUsers(restored));
+    }
+
+    private List<CommandInput> transfers(final Bank bank, final boolean ring)
+            throws Exception {
+        List<String> ibans = new ArrayList<>();
+        for (JsonNode user : printUsers(bank)) {
+            ibans.add(user.get("accounts").get(0).get("IBAN").asText());
+        }
+        List<CommandInput> transfers = new ArrayList<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < TRANSFERS; i++) {
+            int from = ring ? i % USERS : random.nextInt(USERS);
+            int to = ring ? (i + 1) % USERS : random.nextInt(USERS);
+            ObjectNode transfer = objectMapper.createObjectNode()
+                    .put("command", "sendMoney")
+                    .put("email", email(from))
+                    .put("account", ibans.get(from))
+                    .put("receiver", ibans.get(to))
+                    .put("amount", 1 + random.nextInt(MAX_AMOUNT))
+                    .put("description", "transfer")
+                    .put("timestamp", USERS + 1 + i);
+            transfers.add(objectMapper.treeToValue(transfer, CommandInput.class));
+        }
+        return transfers;
+    }
+
+    private Bank newBank() throws Exception {
+        ObjectNode input = objectMapper.createObjectNode();
+        ArrayNode users = input.putArray("users");
+        for (int i = 0; i < USERS; i++) {
+            users.addObject()
+                    .put("firstName", "First" + i)
+                    .put("lastName", "Last" + i)
+                    .put("email", email(i))
+                    .put("birthDate", "2000-01-01")
+                    .put("occupation", "student");
+        }
+        input.putArray("exchangeRates").addObject()
+                .put("from", "EUR")
+                .put("to", "RON")
+                .put("rate", INITIAL_BALANCE);
+        input.putArray("commerciants");
+        return new Bank(objectMapper, objectMapper.treeToValue(input, ObjectInput.class));
+    }
+
+    private Bank openAccounts() throws Exception {
+        Bank bank = newBank();
+        for (int i = 0; i < USERS; i++) {
+            bank.executeCommand(command(objectMapper.createObjectNode()
+                    .put("command", "addAccount")
+                    .put("email", email(i))
+                    .put("currency", "RON")
+                    .put("accountType", "classic")
+                    .put("timestamp", 0)), ignoredOutput());
+        }
+        int timestamp = 1;
+        for (JsonNode user : printUsers(bank)) {
+            bank.executeCommand(command(objectMapper.createObjectNode()
+                    .put("command", "addFunds")
+                    .put("email", user.get("email").asText())
+                    .put("account", user.get("accounts").get(0).get("IBAN").asText())
+                    .put("amount", INITIAL_BALANCE)
+                    .put("timestamp", timestamp++)), ignoredOutput());
+        }
+        return bank;
+    }
+
+    private ArrayNode printUsers(final Bank bank) throws Exception {
+        ArrayNodeOutput output = new ArrayNodeOutput(objectMapper.createArrayNode());
+        bank.executeCommand(command(objectMapper.createObjectNode()
+                .put("command", "printUsers")
+                .put("timestamp", Integer.MAX_VALUE)), output);
+        return (ArrayNode) output.getArray().get(0).get("output");
+    }
+
+    private CommandInput command(final ObjectNode node) throws Exception {
+        return objectMapper.treeToValue(node, CommandInput.class);
+    }
+
+    private ArrayNodeOutput ignoredOutput() {
+        return new ArrayNodeOutput(objectMapper.createArrayNode());
+    }
+
+    private static String email(final int user) {
+        return "user" + user + "@bank.com";
+    }
+}
@@ -0,0 +1,256 @@
+package org.poo.banksystem;
+
+import org.junit.jupiter.api.Test;
+import org.poo.fileio.ExchangeInput;
+import org.poo.persistence.SnapshotInput;
+import org.poo.persistence.SnapshotOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests for {@link ExchangeRateManager}.
+ */
+class ExchangeRateManagerTest {
+    private static final String[] CURRENCIES = {"RON", "EUR", "USD", "GBP", "JPY"};
+    private static final double EUR_TO_RON = 5.0;
+    private static final double USD_TO_EUR = 0.9;
+    private static final double NEW_EUR_TO_RON = 4.97;
+    private static final double GBP_TO_RON = 5.9;
+    private static final int FIRST_UPDATE = 10;
+    private static final int SECOND_UPDATE = 20;
+    private static final int[] TIMESTAMPS = {0, FIRST_UPDATE, SECOND_UPDATE};
+    private static final String[] GRAPH_CURRENCIES = {"RON", "C1", "C2", "C3", "C4", "C5",
+        "C6", "C7", "C8", "C9"};
+    private static final long SEED = 8;
+    private static final int GRAPHS = 50;
+    private static final int UPDATES = 40;
+    private static final int MAX_BATCH = 4;
+    private static final int CHOICES = 4;
+    private static final long CONVERSION_SEED = 7;
+    private static final int CONVERSIONS = 200_000;
+    private static final int KINDS = 3;
+    private static final int TEN = 10;
+    private static final int PRODUCT_DECIMALS = 15;
+    private static final int MAX_AMOUNT_DECIMALS = 4;
+    private static final int MAX_AMOUNT_DIGITS = 1_000_000;
+    private static final long MAX_RATE_DIGITS = 1_000_000_000_000_000L;
+    private static final long MAX_PRODUCT_DIGITS = 40_000_000_000_000_000L;
+    private static final int MAGNITUDES = 40;
+    private static final int HALF_DIGIT = 5;
+    private static final int NEAR_HALF = 3;
+    private static final double MIN_RATE = 0.01;
+    private static final double MAX_RATE = 100.0;
+
+    /**
+     * The rates updated after the manager was created, the currencies added
+     * since and the older versions of the rates are all restored from a
+     * snapshot, and later updates leave the restored older versions alone.
+     *
+     * @throws IOException if the snapshot cannot be read
+     */
+    @Test
+    void snapshotKeepsUpdatedRates() throws IOException {
+        ExchangeRateManager original = new ExchangeRateManager(inputRates());
+        original.updateRate("EUR", "RON", NEW_EUR_TO_RON, FIRST_UPDATE);
+        original.getCurrencyId("JPY");
+        original.updateRate("GBP", "RON", GBP_TO_RON, SECOND_UPDATE);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotOutput output = new SnapshotOutput(Channels.newChannel(bytes));
+        original.writeTo(output);
+        output.flush();
+
+        ExchangeRateManager restored = new ExchangeRateManager(inputRates());
+        restored.readFrom(new SnapshotInput(ByteBuffer.wrap(bytes.toByteArray())));
+
+        for (String currency : CURRENCIES) {
+            assertEquals(original.findCurrencyId(currency), restored.findCurrencyId(currency));
+        }
+        for (String from : CURRENCIES) {
+            for (String to : CURRENCIES) {
+                for (int timestamp : TIMESTAMPS) {
+                    assertEquals(rate(original, from, to, timestamp),
+                            rate(restored, from, to, timestamp));
+                }
+            }
+        }
+        original.updateRate("USD", "EUR", 1 / USD_TO_EUR);
+        restored.updateRate("USD", "EUR", 1 / USD_TO_EUR);
+        for (int timestamp : TIMESTAMPS) {
+            assertEquals(rate(original, "USD", "GBP", timestamp),
+                    rate(restored, "USD", "GBP", timestamp));
+            assertEquals(rate(original, "USD", "RON", timestamp),
+                    rate(restored, "USD", "RON", timestamp));
+        }
+    }
+
+    /**
+     * A snapshot can't be loaded into a manager created from other rates.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Test
+    void snapshotOfOtherRatesIsRejected() throws IOException {
+        ExchangeRateManager original = new ExchangeRateManager(inputRates());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotOutput output = new SnapshotOutput(Channels.newChannel(bytes));
+        original.writeTo(output);
+        output.flush();
+
+        ExchangeRateManager other = new ExchangeRateManager(new ExchangeInput[] {
+            rate("GBP", "RON", GBP_TO_RON)});
+        assertThrows(IOException.class, () -> other.readFrom(
+                new SnapshotInput(ByteBuffer.wrap(bytes.toByteArray()))));
+    }
+
+    /**
+     * Over random graphs of currencies, a manager updated one rate or one batch
+     * of rates at a time holds exactly the rates, bit for bit, of a manager
+     * created from the final rates, whose closure is computed from scratch.
+     * Updates join and change groups of linked currencies, and some of them
+     * set a rate again, reversed or unchanged.
+     *
+     * @throws IOException if the snapshots cannot be written
+     */
+    @Test
+    void incrementalUpdatesMatchAFullClosure() throws IOException {
+        Random random = new Random(SEED);
+        for (int graph = 0; graph < GRAPHS; graph++) {
+            // the latest rate of every pair, keyed by the pair in either direction
+            Map<String, ExchangeInput> given = new LinkedHashMap<>();
+            List<ExchangeInput> initial = new ArrayList<>();
+            for (String currency : GRAPH_CURRENCIES) {
+                ExchangeInput input = randomRate(random, currency);
+                initial.add(input);
+                given.put(pair(input), input);
+            }
+            ExchangeRateManager incremental = new ExchangeRateManager(
+                    initial.toArray(new ExchangeInput[0]));
+            for (int update = 0; update < UPDATES; update++) {
+                ExchangeInput[] batch = new ExchangeInput[1 + random.nextInt(MAX_BATCH)];
+                for (int i = 0; i < batch.length; i++) {
+                    List<ExchangeInput> pairs = new ArrayList<>(given.values());
+                    ExchangeInput previous = pairs.get(random.nextInt(pairs.size()));
+                    switch (random.nextInt(CHOICES)) {
+                        case 0 -> batch[i] = previous;
+                        case 1 -> batch[i] = rate(previous.getTo(), previous.getFrom(),
+                                1 / previous.getRate());
+                        default -> batch[i] = randomRate(random, GRAPH_CURRENCIES[
+                                random.nextInt(GRAPH_CURRENCIES.length)]);
+                    }
+                    given.put(pair(batch[i]), batch[i]);
+                }
+                if (batch.length == 1) {
+                    incremental.updateRate(batch[0].getFrom(), batch[0].getTo(),
+                            batch[0].getRate());
+                } else {
+                    incremental.updateRates(batch);
+                }
+            }
+            ExchangeRateManager full = new ExchangeRateManager(
+                    given.values().toArray(new ExchangeInput[0]));
+
+            for (String currency : GRAPH_CURRENCIES) {
+                assertEquals(full.findCurrencyId(currency),
+                        incremental.findCurrencyId(currency));
+            }
+            assertArrayEquals(snapshot(full), snapshot(incremental));
+        }
+    }
+
+    /**
+     * Both conversion modes give the same bits over random amounts and rates.
+     * Two thirds of the products are built to land on a rounding half, or a few
+     * units of the 15th decimal away from one: the decimals of the amount and
+     * the rate add up to 15, and the last digit of the rate is drawn around 5.
+     * Those are the products the margin of the primitive mode has to hand to
+     * the decimal one.
+     */
+    @Test
+    void conversionModesAgreeNearRoundingHalves() {
+        ExchangeRateManager manager = new ExchangeRateManager(new ExchangeInput[] {
+            rate("EUR", "RON", EUR_TO_RON)});
+        Random random = new Random(CONVERSION_SEED);
+        for (int i = 0; i < CONVERSIONS; i++) {
+            double amount;
+            double rate;
+            if (random.nextInt(KINDS) == 0) {
+                amount = random.nextDouble() * Math.pow(2, random.nextInt(MAGNITUDES));
+                rate = MIN_RATE + random.nextDouble() * (MAX_RATE - MIN_RATE);
+            } else {
+                // the decimals of the amount and the rate add up to 15, so the
+                // decimal product ends at the 15th decimal; the product stays
+                // small enough for the primitive mode not to fall back outright
+                int amountDecimals = random.nextInt(MAX_AMOUNT_DECIMALS + 1);
+                int rateDecimals = PRODUCT_DECIMALS - amountDecimals;
+                int amountDigits = 1 + random.nextInt(MAX_AMOUNT_DIGITS);
+                amount = amountDigits / Math.pow(TEN, amountDecimals);
+                long bound = Math.min(MAX_PRODUCT_DIGITS / amountDigits, MAX_RATE_DIGITS);
+                long digits = random.nextLong(bound) / TEN * TEN
+                        + HALF_DIGIT + random.nextInt(2 * NEAR_HALF + 1) - NEAR_HALF;
+                rate = digits / Math.pow(TEN, rateDecimals);
+            }
+            manager.updateRate("EUR", "RON", rate);
+            manager.setConversionMode(ExchangeRateManager.ConversionMode.PRIMITIVE);
+            double primitive = manager.convert(amount, "EUR", "RON");
+            manager.setConversionMode(ExchangeRateManager.ConversionMode.EXACT_DECIMAL);
+            double exact = manager.convert(amount, "EUR", "RON");
+            assertEquals(Double.doubleToLongBits(exact), Double.doubleToLongBits(primitive),
+                    () -> amount + " * " + rate);
+        }
+    }
+
+    private static byte[] snapshot(final ExchangeRateManager manager) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotOutput output = new SnapshotOutput(Channels.newChannel(bytes));
+        manager.writeTo(output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static ExchangeInput randomRate(final Random random, final String from) {
+        String to = from;
+        while (to.equals(from)) {
+            to = GRAPH_CURRENCIES[random.nextInt(GRAPH_CURRENCIES.length)];
+        }
+        return rate(from, to, MIN_RATE + random.nextDouble() * (MAX_RATE - MIN_RATE));
+    }
+
+    private static String pair(final ExchangeInput input) {
+        return input.getFrom().compareTo(input.getTo()) < 0
+                ? input.getFrom() + "/" + input.getTo() : input.getTo() + "/" + input.getFrom();
+    }
+
+    private static double rate(final ExchangeRateManager manager, final String from,
+                               final String to, final int timestamp) {
+        try {
+            return manager.convert(1.0, from, to, timestamp);
+        } catch (IllegalArgumentException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static ExchangeInput[] inputRates() {
+        return new ExchangeInput[] {rate("EUR", "RON", EUR_TO_RON),
+            rate("USD", "EUR", USD_TO_EUR)};
+    }
+
+    private static ExchangeInput rate(final String from, final String to, final double rate) {
+        ExchangeInput input = new ExchangeInput();
+        input.setFrom(from);
+        input.setTo(to);
+        input.setRate(rate);
+        return input;
+    }
+}
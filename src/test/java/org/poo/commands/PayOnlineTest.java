@@ -0,0 +1,50 @@
+package org.poo.commands;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.poo.banksystem.Bank;
+import org.poo.fileio.ArrayNodeOutput;
+import org.poo.fileio.ObjectInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link PayOnline}.
+ */
+class PayOnlineTest {
+    private static final double EXPECTED_TOTAL = 2800.0;
+    private static final int EXPECTED_PAYMENTS = 7;
+
+    /**
+     * The payment that upgrades a silver plan to gold is listed twice in the
+     * transactions of the account, and the spendings report counts it twice too,
+     * so the total of the commerciant still matches the card payments listed.
+     *
+     * @throws IOException if the input cannot be read
+     */
+    @Test
+    void upgradingPaymentIsCountedAsOftenAsItIsListed() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectInput input;
+        try (InputStream stream = getClass().getResourceAsStream("silverUpgrade.json")) {
+            input = objectMapper.readValue(stream, ObjectInput.class);
+        }
+        ArrayNodeOutput output = new ArrayNodeOutput(objectMapper.createArrayNode());
+        new Bank(objectMapper, input).executeCommands(output);
+
+        JsonNode report = output.getArray().get(0).get("output");
+        double listed = 0;
+        for (JsonNode transaction : report.get("transactions")) {
+            listed += transaction.get("amount").asDouble();
+        }
+        assertEquals(EXPECTED_PAYMENTS, report.get("transactions").size());
+        assertEquals(EXPECTED_TOTAL, listed, 0.0);
+        assertEquals(1, report.get("commerciants").size());
+        assertEquals("Zara", report.get("commerciants").get(0).get("commerciant").asText());
+        assertEquals(listed, report.get("commerciants").get(0).get("total").asDouble(), 0.0);
+    }
+}
@@ -0,0 +1,47 @@
+package org.poo.fileio;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for {@link StreamingOutput}.
+ */
+class StreamingOutputTest {
+    private static final int OUTPUTS = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * The outputs are not flushed to the file one by one, and the closed file
+     * is laid out exactly like the array written all at once.
+     *
+     * @throws IOException if the file cannot be written or read
+     */
+    @Test
+    void outputsAreBufferedAndLaidOutLikeTheWholeArray() throws IOException {
+        File file = directory.resolve("out.json").toFile();
+        ArrayNode expected = objectMapper.createArrayNode();
+        try (StreamingOutput output = new StreamingOutput(objectMapper, file)) {
+            for (int i = 0; i < OUTPUTS; i++) {
+                expected.addObject().put("command", "printUsers").put("timestamp", i)
+                        .putArray("output").addObject().put("email", "user" + i + "@bank.com");
+                output.add(expected.get(i));
+                assertEquals(0, file.length());
+            }
+        }
+        assertEquals(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(expected),
+                Files.readString(file.toPath()));
+    }
+}
@@ -0,0 +1,109 @@
+package org.poo.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests for {@link SnapshotInput} reading what {@link SnapshotOutput} streamed
+ * to a file.
+ */
+class SnapshotInputTest {
+    private static final long SEED = 21;
+    private static final int KINDS = 6;
+    private static final int INT = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int BOOLEAN = 3;
+    private static final int STRING = 4;
+    private static final int MAX_STRING_LENGTH = 40;
+    private static final int LARGE_STRING_LENGTH = 200_000;
+    private static final int SMALL_COUNT = 200;
+    private static final int LARGE_COUNT = 20_000;
+    private static final int TINY_CHUNK = 5;
+    private static final int ODD_CHUNK = 4093;
+    private static final int LETTERS = 26;
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Values split between tiny chunks are read back whole.
+     *
+     * @throws IOException if the file cannot be written or mapped
+     */
+    @Test
+    void valuesSplitBetweenChunksAreReadWhole() throws IOException {
+        Path file = write(SMALL_COUNT, 0);
+        check(SnapshotInput.map(file, TINY_CHUNK), SMALL_COUNT, 0);
+    }
+
+    /**
+     * A snapshot larger than the write buffer, with a string larger than the
+     * buffer, is read back the same whether it is mapped whole or in chunks.
+     *
+     * @throws IOException if the file cannot be written or mapped
+     */
+    @Test
+    void largeSnapshotIsReadBackInAnyChunkSize() throws IOException {
+        Path file = write(LARGE_COUNT, LARGE_STRING_LENGTH);
+        check(SnapshotInput.map(file), LARGE_COUNT, LARGE_STRING_LENGTH);
+        check(SnapshotInput.map(file, ODD_CHUNK), LARGE_COUNT, LARGE_STRING_LENGTH);
+    }
+
+    private Path write(final int count, final int largeStringLength) throws IOException {
+        Path file = directory.resolve("snapshot-" + count);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotOutput output = new SnapshotOutput(channel);
+            output.writeString("é".repeat(largeStringLength));
+            Random random = new Random(SEED);
+            for (int i = 0; i < count; i++) {
+                switch (random.nextInt(KINDS)) {
+                    case INT -> output.writeInt(random.nextInt());
+                    case LONG -> output.writeLong(random.nextLong());
+                    case DOUBLE -> output.writeDouble(Double.longBitsToDouble(random.nextLong()));
+                    case BOOLEAN -> output.writeBoolean(random.nextBoolean());
+                    case STRING -> output.writeString(randomString(random));
+                    default -> output.writeString(null);
+                }
+            }
+            output.flush();
+        }
+        return file;
+    }
+
+    private static void check(final SnapshotInput input, final int count,
+                              final int largeStringLength) {
+        assertEquals("é".repeat(largeStringLength), input.readString());
+        Random random = new Random(SEED);
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(KINDS)) {
+                case INT -> assertEquals(random.nextInt(), input.readInt());
+                case LONG -> assertEquals(random.nextLong(), input.readLong());
+                case DOUBLE -> assertEquals(random.nextLong(),
+                        Double.doubleToRawLongBits(input.readDouble()));
+                case BOOLEAN -> assertEquals(random.nextBoolean(), input.readBoolean());
+                case STRING -> assertEquals(randomString(random), input.readString());
+                default -> assertNull(input.readString());
+            }
+        }
+    }
+
+    private static String randomString(final Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(MAX_STRING_LENGTH);
+        for (int i = 0; i < length; i++) {
+            builder.append(random.nextBoolean() ? (char) ('a' + random.nextInt(LETTERS)) : 'ș');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,235 @@
+package org.poo.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.poo.banksystem.Bank;
+import org.poo.fileio.ArrayNodeOutput;
+import org.poo.fileio.CommandInput;
+import org.poo.fileio.ObjectInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests for {@link WriteAheadLog}.
+ */
+class WriteAheadLogTest {
+    private static final int RECORDS = 10;
+    private static final int CORRUPTED_RECORD = 6;
+    private static final int GROUP_SIZE = 3;
+    private static final int GROUPS_PER_SYNC = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int TORN_LENGTH = 100;
+    private static final int TORN_PAYLOAD = 10;
+    private static final int LARGE_DESCRIPTION = 70_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * A record cut short at the end of the log is not replayed, and is dropped
+     * from the file when the log is opened again, so the next record follows
+     * the last complete one.
+     *
+     * @throws IOException if the log cannot be written or read
+     */
+    @Test
+    void tornTailIsTruncated() throws IOException {
+        Path path = directory.resolve("bank.log");
+        List<CommandInput> commands = commands(RECORDS);
+        long length = write(path, commands);
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.APPEND)) {
+            file.write(ByteBuffer.allocate(HEADER_SIZE + TORN_PAYLOAD).putInt(TORN_LENGTH)
+                    .rewind());
+        }
+
+        assertEquals(json(commands), replay(path, length));
+        try (WriteAheadLog log = new WriteAheadLog(path, objectMapper, GROUP_SIZE,
+                GROUPS_PER_SYNC)) {
+            assertEquals(length, Files.size(path));
+            log.append(command(RECORDS));
+        }
+        commands.add(command(RECORDS));
+        assertEquals(json(commands), replay(path, Files.size(path)));
+    }
+
+    /**
+     * A record whose CRC does not match ends the log: neither it nor the
+     * records after it are replayed, and they are dropped when the log is
+     * opened again.
+     *
+     * @throws IOException if the log cannot be written or read
+     */
+    @Test
+    void crcMismatchEndsReplay() throws IOException {
+        Path path = directory.resolve("bank.log");
+        List<CommandInput> commands = commands(RECORDS);
+        long[] offsets = new long[RECORDS];
+        try (WriteAheadLog log = new WriteAheadLog(path, objectMapper, GROUP_SIZE,
+                GROUPS_PER_SYNC)) {
+            for (int i = 0; i < RECORDS; i++) {
+                offsets[i] = log.length();
+                log.append(commands.get(i));
+            }
+        }
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer flipped = ByteBuffer.allocate(1);
+            long position = offsets[CORRUPTED_RECORD] + HEADER_SIZE + 1;
+            file.read(flipped, position);
+            flipped.put(0, (byte) ~flipped.get(0));
+            file.write(flipped.rewind(), position);
+        }
+
+        assertEquals(json(commands.subList(0, CORRUPTED_RECORD)),
+                replay(path, offsets[CORRUPTED_RECORD]));
+        new WriteAheadLog(path, objectMapper, GROUP_SIZE, GROUPS_PER_SYNC).close();
+        assertEquals(offsets[CORRUPTED_RECORD], Files.size(path));
+    }
+
+    /**
+     * A log opened again keeps its records and appends the new ones after them.
+     *
+     * @throws IOException if the log cannot be written or read
+     */
+    @Test
+    void reopenedLogAppendsAfterItsRecords() throws IOException {
+        Path path = directory.resolve("bank.log");
+        List<CommandInput> commands = commands(2 * RECORDS);
+        write(path, commands.subList(0, RECORDS));
+        long length = write(path, commands.subList(RECORDS, 2 * RECORDS));
+
+        assertEquals(json(commands), replay(path, length));
+    }
+
+    /**
+     * A record too large for the buffer writes the records buffered before it
+     * as a group of their own, and starts counting the next group from itself.
+     *
+     * @throws IOException if the log cannot be written
+     */
+    @Test
+    void overflowingRecordStartsANewGroup() throws IOException {
+        Path path = directory.resolve("bank.log");
+        try (WriteAheadLog log = new WriteAheadLog(path, objectMapper, GROUP_SIZE,
+                GROUPS_PER_SYNC)) {
+            log.append(command(0));
+            log.append(command(1));
+            long buffered = log.length();
+            CommandInput large = command(2);
+            large.setDescription("x".repeat(LARGE_DESCRIPTION));
+            log.append(large);
+            assertEquals(buffered, Files.size(path));
+            log.append(command(GROUP_SIZE));
+            assertEquals(buffered, Files.size(path));
+            log.append(command(GROUP_SIZE + 1));
+            assertEquals(log.length(), Files.size(path));
+        }
+    }
+
+    /**
+     * A bank recovered from the log of another one, created from the same input,
+     * ends with the same users, accounts and transactions.
+     *
+     * @throws IOException if the input or the log cannot be read
+     */
+    @Test
+    void recoveredBankMatchesTheLiveOne() throws IOException {
+        Path path = directory.resolve("bank.log");
+        Bank live = new Bank(objectMapper, readInput());
+        try (WriteAheadLog log = new WriteAheadLog(path, objectMapper, GROUP_SIZE,
+                GROUPS_PER_SYNC)) {
+            live.setWriteAheadLog(log);
+            live.executeCommands(new ArrayNodeOutput(objectMapper.createArrayNode()));
+        }
+
+        Bank recovered = new Bank(objectMapper, readInput());
+        ArrayNode initialState = state(recovered);
+        recovered.recover(path);
+
+        ArrayNode liveState = state(live);
+        assertNotEquals(initialState, liveState);
+        assertEquals(liveState, state(recovered));
+    }
+
+    private long write(final Path path, final List<CommandInput> commands) throws IOException {
+        try (WriteAheadLog log = new WriteAheadLog(path, objectMapper, GROUP_SIZE,
+                GROUPS_PER_SYNC)) {
+            for (CommandInput command : commands) {
+                log.append(command);
+            }
+            log.sync();
+            return log.length();
+        }
+    }
+
+    private List<JsonNode> replay(final Path path, final long expectedLength)
+            throws IOException {
+        List<JsonNode> replayed = new ArrayList<>();
+        long length = WriteAheadLog.replay(path, objectMapper,
+                command -> replayed.add(objectMapper.valueToTree(command)));
+        assertEquals(expectedLength, length);
+        return replayed;
+    }
+
+    private List<JsonNode> json(final List<CommandInput> commands) {
+        List<JsonNode> nodes = new ArrayList<>();
+        for (CommandInput command : commands) {
+            nodes.add(objectMapper.valueToTree(command));
+        }
+        return nodes;
+    }
+
+    private List<CommandInput> commands(final int count) throws IOException {
+        List<CommandInput> commands = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            commands.add(command(i));
+        }
+        return commands;
+    }
+
+    private CommandInput command(final int timestamp) throws IOException {
+        return objectMapper.treeToValue(objectMapper.createObjectNode()
+                .put("command", "addFunds")
+                .put("email", "user@bank.com")
+                .put("account", "RO" + timestamp)
+                .put("amount", timestamp)
+                .put("timestamp", timestamp), CommandInput.class);
+    }
+
+    private ArrayNode state(final Bank bank) throws IOException {
+        ArrayNodeOutput output = new ArrayNodeOutput(objectMapper.createArrayNode());
+        bank.executeCommand(objectMapper.treeToValue(objectMapper.createObjectNode()
+                .put("command", "printUsers")
+                .put("timestamp", Integer.MAX_VALUE), CommandInput.class), output);
+        for (JsonNode user : output.getArray().get(0).get("output")) {
+            bank.executeCommand(objectMapper.treeToValue(objectMapper.createObjectNode()
+                    .put("command", "printTransactions")
+                    .put("email", user.get("email").asText())
+                    .put("timestamp", Integer.MAX_VALUE), CommandInput.class), output);
+        }
+        return output.getArray();
+    }
+
+    private ObjectInput readInput() throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream(
+                "businessAndCommerciants.json")) {
+            return objectMapper.readValue(stream, ObjectInput.class);
+        }
+    }
+}
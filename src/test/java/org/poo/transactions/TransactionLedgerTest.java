@@ -0,0 +1,66 @@
+package org.poo.transactions;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Tests for {@link TransactionLedger}.
+ */
+class TransactionLedgerTest {
+    private static final int ROWS = 3000;
+    private static final int QUERIES = 500;
+    private static final long SEED = 14;
+    private static final int TIMESTAMPS = 200;
+    private static final int FIRST_TIMESTAMP = -100;
+    private static final int IN_ORDER_ROWS = 4;
+
+    /**
+     * Rows added out of timestamp order are found by the time windows that
+     * contain them, in the order they were added, and are ordered by timestamp
+     * with ties kept in the order they were added, including negative timestamps.
+     */
+    @Test
+    void rowsAddedOutOfOrderAreFoundByTimestamp() {
+        TransactionLedger ledger = new TransactionLedger();
+        List<Integer> added = new ArrayList<>();
+        Random random = new Random(SEED);
+        for (int row = 0; row < ROWS; row++) {
+            // mostly in order, as commands arrive, with some rows from the past
+            int timestamp = random.nextInt(IN_ORDER_ROWS) == 0
+                    ? FIRST_TIMESTAMP + random.nextInt(TIMESTAMPS)
+                    : FIRST_TIMESTAMP + row * TIMESTAMPS / ROWS;
+            ledger.add(new Transaction.Builder().timestamp(timestamp)
+                    .type(TransactionType.CARD_PAYMENT).amount(row).build());
+            added.add(timestamp);
+        }
+
+        for (int i = 0; i < QUERIES; i++) {
+            int start = FIRST_TIMESTAMP + random.nextInt(TIMESTAMPS);
+            int end = start + random.nextInt(TIMESTAMPS / IN_ORDER_ROWS);
+            List<Integer> expected = new ArrayList<>();
+            for (int row = 0; row < added.size(); row++) {
+                if (added.get(row) >= start && added.get(row) <= end) {
+                    expected.add(row);
+                }
+            }
+            assertArrayEquals(toArray(expected), ledger.rowsBetween(start, end));
+        }
+
+        List<Integer> byTimestamp = new ArrayList<>();
+        for (int row = 0; row < added.size(); row++) {
+            byTimestamp.add(row);
+        }
+        byTimestamp.sort(Comparator.comparingInt(added::get));
+        assertArrayEquals(toArray(byTimestamp), ledger.rowsByTimestamp());
+    }
+
+    private static int[] toArray(final List<Integer> rows) {
+        return rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+}